@@ -0,0 +1,57 @@
+package com.plaid_cash_snapshot.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regex chain (the old RecurringService.norm) vs MerchantNormalizer on a mix of
+ * raw Plaid-style merchant names and already-normalized names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MerchantNormalizerBenchmark {
+
+    private static final String[] RAW = {
+            "Uber 063015 SF**POOL**", "Starbucks", "McDonald's", "  Netflix.com  ", "United Airlines",
+            "SparkFun", "Touchstone Climbing", "KFC", "Madison Bicycle Shop", "AMAZON MKTPLACE PMTS",
+            "Tectra Inc", "CD DEPOSIT .INITIAL.", "Spotify USA", "INTRST PYMNT", "gusto payroll"
+    };
+
+    @Param({"1024"})
+    public int size;
+
+    private String[] names;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            String raw = RAW[rnd.nextInt(RAW.length)];
+            // roughly a third of inputs are already normalized (e.g. re-ingested modified rows)
+            names[i] = rnd.nextInt(3) == 0 ? regex(raw) : raw;
+        }
+    }
+
+    @Benchmark
+    public void regexChain(Blackhole bh) {
+        for (String n : names) bh.consume(regex(n));
+    }
+
+    @Benchmark
+    public void charLoop(Blackhole bh) {
+        for (String n : names) bh.consume(MerchantNormalizer.normalize(n));
+    }
+
+    private static String regex(String s) {
+        return s == null ? null : s.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[^a-z0-9\\s]", "");
+    }
+}
@@ -0,0 +1,40 @@
+package com.plaid_cash_snapshot.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlaidRecurringMapper over a decoded /transactions/recurring/get body (both directions).
+ * dateOnly=true feeds "yyyy-MM-dd" dates as Plaid actually sends them, which the
+ * OffsetDateTime parse rejects via an exception per field.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlaidRecurringMapperBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int streams;
+
+    @Param({"false", "true"})
+    public boolean dateOnly;
+
+    private Map<String, Object> body;
+
+    @Setup
+    public void setup() {
+        body = SyntheticRecurring.plaidBody(streams, dateOnly, 42);
+    }
+
+    @Benchmark
+    public void map(Blackhole bh) {
+        bh.consume(PlaidRecurringMapper.map(body, "inflow"));
+        bh.consume(PlaidRecurringMapper.map(body, "outflow"));
+    }
+}
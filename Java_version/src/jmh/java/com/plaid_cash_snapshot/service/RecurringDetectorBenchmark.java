@@ -0,0 +1,52 @@
+package com.plaid_cash_snapshot.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomRecurringDetector (the old buildCustomStreams + norm + median path) over one
+ * user's candidate rows, at increasing history sizes and merchant cardinality.
+ * Allocation rate comes from the gc profiler the jmh profile enables by default.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecurringDetectorBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"20", "200", "2000"})
+    public int merchants;
+
+    private CustomRecurringDetector.Columns columns;
+    private long[] gaps;
+    private long[] scratch;
+
+    @Setup
+    public void setup() {
+        columns = SyntheticRecurring.columns(rows, merchants, 42);
+        Random rnd = new Random(42);
+        gaps = new long[Math.max(rows / merchants, 2)];
+        for (int i = 0; i < gaps.length; i++) gaps[i] = 25 + rnd.nextInt(10);
+        scratch = new long[gaps.length];
+    }
+
+    @Benchmark
+    public List<CustomRecurringDetector.Candidate> detect() {
+        return CustomRecurringDetector.detect(columns);
+    }
+
+    // one group's gap median, as detect() computes it per candidate; median sorts in place, so copy first
+    @Benchmark
+    public double median() {
+        System.arraycopy(gaps, 0, scratch, 0, gaps.length);
+        return CustomRecurringDetector.median(scratch, scratch.length);
+    }
+}
@@ -0,0 +1,91 @@
+package com.plaid_cash_snapshot.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded synthetic inputs for the recurring benchmarks. Roughly 70% of rows follow a
+ * per-merchant schedule (weekly .. quarterly, +-2 days jitter, amount within a few
+ * dollars) and the rest are one-off noise, so the detector sees both long runs and
+ * groups that never reach MIN_OCCURRENCES.
+ */
+final class SyntheticRecurring {
+
+    private static final int[] PERIODS = {7, 14, 30, 30, 30, 91};
+    private static final int START_DAY = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+    private static final int SPAN_DAYS = 730;
+
+    private SyntheticRecurring() {}
+
+    static CustomRecurringDetector.Columns columns(int rows, int merchants, long seed) {
+        Random rnd = new Random(seed);
+        int[] period = new int[merchants];
+        long[] baseCents = new long[merchants];
+        int[] nextDay = new int[merchants];
+        for (int m = 0; m < merchants; m++) {
+            period[m] = PERIODS[rnd.nextInt(PERIODS.length)];
+            baseCents[m] = 500 + rnd.nextInt(200_000);
+            nextDay[m] = START_DAY + rnd.nextInt(period[m]);
+        }
+
+        CustomRecurringDetector.Columns c = new CustomRecurringDetector.Columns(rows);
+        for (int i = 0; i < rows; i++) {
+            int m = rnd.nextInt(merchants);
+            if (rnd.nextInt(10) < 7) {
+                int day = nextDay[m] + rnd.nextInt(5) - 2;
+                nextDay[m] += period[m];
+                if (nextDay[m] > START_DAY + SPAN_DAYS) nextDay[m] = START_DAY + rnd.nextInt(period[m]);
+                c.add(m + 1, day, baseCents[m] + rnd.nextInt(300));
+            } else {
+                c.add(m + 1, START_DAY + rnd.nextInt(SPAN_DAYS), 100 + rnd.nextInt(50_000));
+            }
+        }
+        return c;
+    }
+
+    /**
+     * A /transactions/recurring/get body as WebClient decodes it into a Map: nested
+     * LinkedHashMaps, Doubles/Integers for numbers and strings for dates.
+     */
+    static Map<String, Object> plaidBody(int streamsPerDirection, boolean dateOnly, long seed) {
+        Random rnd = new Random(seed);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("inflow_streams", streams(rnd, streamsPerDirection, dateOnly, "in"));
+        root.put("outflow_streams", streams(rnd, streamsPerDirection, dateOnly, "out"));
+        root.put("request_id", "synthetic");
+        return root;
+    }
+
+    private static List<Map<String, Object>> streams(Random rnd, int n, boolean dateOnly, String prefix) {
+        List<Map<String, Object>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int period = PERIODS[rnd.nextInt(PERIODS.length)];
+            LocalDate first = LocalDate.ofEpochDay(START_DAY + rnd.nextInt(120));
+            int occurrences = 3 + rnd.nextInt(20);
+            LocalDate last = first.plusDays((long) period * (occurrences - 1));
+
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("stream_id", prefix + "-" + i);
+            s.put("description", "MERCHANT " + i + " PMT");
+            // ~1 in 5 streams has no merchant_name, falling back to description
+            if (rnd.nextInt(5) != 0) s.put("merchant_name", Map.of("name", "Merchant " + i));
+            s.put("average_amount", Map.of("value", Math.round(rnd.nextDouble() * 200_000) / 100.0,
+                    "iso_currency_code", "USD"));
+            s.put("first_date", date(first, dateOnly));
+            s.put("last_date", date(last, dateOnly));
+            s.put("frequency", Map.of("days", period));
+            s.put("occurrences", occurrences);
+            s.put("is_active", true);
+            out.add(s);
+        }
+        return out;
+    }
+
+    private static String date(LocalDate d, boolean dateOnly) {
+        return dateOnly ? d.toString() : d + "T00:00:00Z";
+    }
+}
@@ -0,0 +1,14 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Per-item account id cache (see AccountDirectory). */
+@Data
+@ConfigurationProperties(prefix = "app.accounts.directory")
+public class AccountDirectoryProperties {
+    private long maxSize = 50_000;
+    private Duration ttl = Duration.ofHours(1); // bounds staleness across replicas after a relink
+}
@@ -0,0 +1,13 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** POST /sync/bulk; see BulkSyncService. */
+@Data
+@ConfigurationProperties(prefix = "app.sync.bulk")
+public class BulkSyncProperties {
+    private int concurrency = 8;      // item syncs in flight when the request does not ask
+    private int maxConcurrency = 32;  // requested concurrency is clamped to this
+    private int maxUsers = 10_000;    // per request
+}
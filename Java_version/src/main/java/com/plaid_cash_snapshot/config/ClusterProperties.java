@@ -0,0 +1,14 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Replica membership and shard ownership; see ClusterMembership. */
+@Data
+@ConfigurationProperties(prefix = "app.cluster")
+public class ClusterProperties {
+    private Duration nodeTtl = Duration.ofSeconds(30); // nodes without a heartbeat this long are considered gone
+    private int virtualNodes = 128;                    // ring points per node
+}
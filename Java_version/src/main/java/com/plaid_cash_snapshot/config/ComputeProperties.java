@@ -0,0 +1,12 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Bounded pool for CPU-heavy analytics (recurring detection), kept off the Netty event loops. */
+@Data
+@ConfigurationProperties(prefix = "app.compute")
+public class ComputeProperties {
+    private int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 64; // tasks beyond this are rejected instead of queued
+}
@@ -0,0 +1,45 @@
+package com.plaid_cash_snapshot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableConfigurationProperties(ComputeProperties.class)
+public class ComputeSchedulerConfig {
+
+    /**
+     * Fixed-size pool with a bounded queue and AbortPolicy: when full, work is rejected
+     * (RejectedExecutionException) rather than piling up behind a heavy user.
+     * Pool/queue metrics are published as executor.* with name=recurring.compute.
+     */
+    @Bean(destroyMethod = "dispose")
+    @Qualifier("computeScheduler")
+    public Scheduler computeScheduler(ComputeProperties props, MeterRegistry registry) {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                props.getThreads(), props.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(props.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "recurring-compute-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        return Schedulers.fromExecutorService(
+                ExecutorServiceMetrics.monitor(registry, executor, "recurring.compute"),
+                "recurring-compute");
+    }
+}
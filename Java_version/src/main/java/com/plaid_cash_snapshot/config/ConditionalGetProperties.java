@@ -0,0 +1,15 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** ETag / If-None-Match on /summary and /recurring; see DataVersions. */
+@Data
+@ConfigurationProperties(prefix = "app.conditional-get")
+public class ConditionalGetProperties {
+    private boolean enabled = true;
+    // /summary refreshes from Plaid; a matching ETag only skips that while balances are younger than this
+    private Duration summaryMaxAge = Duration.ofSeconds(60);
+}
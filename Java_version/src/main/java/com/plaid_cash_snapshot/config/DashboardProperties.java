@@ -0,0 +1,13 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** /dashboard fan-out; see DashboardService. */
+@Data
+@ConfigurationProperties(prefix = "app.dashboard")
+public class DashboardProperties {
+    private Duration deadline = Duration.ofSeconds(8); // shared by all sections of one request
+}
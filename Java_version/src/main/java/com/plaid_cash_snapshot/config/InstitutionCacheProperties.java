@@ -0,0 +1,16 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Institution metadata cache (see InstitutionService). */
+@Data
+@ConfigurationProperties(prefix = "app.institutions")
+public class InstitutionCacheProperties {
+    private long maxSize = 5000;
+    private Duration refreshAfter = Duration.ofDays(1); // served while refreshed in the background
+    private Duration ttl = Duration.ofDays(7);          // hard expiry in memory and staleness bound for the table
+    private String seedFile = "classpath:institutions-seed.json";
+}
@@ -0,0 +1,19 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Durable job queue workers (see JobQueue / JobWorker). */
+@Data
+@ConfigurationProperties(prefix = "app.jobs")
+public class JobProperties {
+    private boolean enabled = true;
+    private int concurrency = 4;                          // jobs running at once on this node
+    private int maxAttempts = 5;
+    private Duration backoffBase = Duration.ofSeconds(30); // doubled per attempt
+    private Duration backoffMax = Duration.ofMinutes(30);
+    private Duration jobTimeout = Duration.ofMinutes(30);
+    private Duration lockTimeout = Duration.ofMinutes(5);  // running jobs without progress for this long are requeued
+}
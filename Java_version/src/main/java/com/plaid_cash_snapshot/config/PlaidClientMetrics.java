@@ -0,0 +1,113 @@
+package com.plaid_cash_snapshot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Times every Plaid call as plaid.client.requests{endpoint, status, error_code}.
+ * endpoint is the request path (a fixed set of Plaid routes) and error_code is
+ * Plaid's error_code from the JSON error body, so all tags stay low-cardinality.
+ * Error bodies are buffered and handed on unchanged to the caller.
+ *
+ * Each call is also a plaid.call span carrying Plaid's request_id (and error_code for
+ * errors). Successful bodies are joined into one buffer so the id can be read while the
+ * span is still open; the buffer itself is handed on, not copied, and the caller's
+ * decoder would have joined it anyway. Timings therefore include the body transfer.
+ */
+@Component
+@RequiredArgsConstructor
+public class PlaidClientMetrics implements ExchangeFilterFunction {
+
+    private static final Pattern ERROR_CODE = Pattern.compile("\"error_code\"\\s*:\\s*\"([A-Z0-9_]{1,64})\"");
+    private static final Pattern REQUEST_ID = Pattern.compile("\"request_id\"\\s*:\\s*\"([A-Za-z0-9_-]{1,64})\"");
+
+    private final MeterRegistry meterRegistry;
+    private final Spans spans;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String endpoint = request.url().getPath();
+        return spans.mono("plaid.call", Mono.defer(() -> {
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .flatMap(response -> {
+                        String status = String.valueOf(response.statusCode().value());
+                        spans.tag("http.status_code", status);
+                        if (!response.statusCode().isError()) {
+                            return response.bodyToMono(DataBuffer.class)
+                                    .map(body -> {
+                                        spans.tag("plaid.request_id", requestId(new Latin1(body)));
+                                        record(endpoint, status, "none", start);
+                                        return response.mutate().body(Flux.just(body)).build();
+                                    })
+                                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                                        record(endpoint, status, "none", start);
+                                        return response.mutate().body(Flux.empty()).build();
+                                    }));
+                        }
+                        return response.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .map(body -> {
+                                    String errorCode = errorCode(body);
+                                    spans.tag("plaid.error_code", errorCode);
+                                    spans.tag("plaid.request_id", requestId(body));
+                                    record(endpoint, status, errorCode, start);
+                                    return response.mutate().body(body).build();
+                                });
+                    })
+                    .doOnError(err -> record(endpoint, "IO_ERROR", err.getClass().getSimpleName(), start));
+        }), "endpoint", endpoint);
+    }
+
+    private void record(String endpoint, String status, String errorCode, long startNanos) {
+        meterRegistry.timer("plaid.client.requests", "endpoint", endpoint, "status", status, "error_code", errorCode)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String errorCode(String body) {
+        Matcher m = ERROR_CODE.matcher(body);
+        return m.find() ? m.group(1) : "unknown";
+    }
+
+    private static String requestId(CharSequence body) {
+        Matcher m = REQUEST_ID.matcher(body);
+        return m.find() ? m.group(1) : null;
+    }
+
+    // Lets the patterns scan a response buffer in place; the matched keys and ids are ASCII
+    private record Latin1(DataBuffer buffer) implements CharSequence {
+
+        @Override
+        public int length() {
+            return buffer.readableByteCount();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.getByte(buffer.readPosition() + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return buffer.toString(buffer.readPosition() + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -14,6 +14,7 @@ public class PlaidProperties {
     @NotBlank
     private String secret;
     private String env = "sandbox";
+    private String baseUrl;             // overrides env, e.g. a local Plaid stand-in
     private String version = "2020-09-14";
     private List<String> countryCodes = List.of("US");
     private String webhook;
@@ -19,12 +19,14 @@ public class PlaidWebClientConfig {
 
     @Bean
     @Qualifier("plaidWebClient")
-    public WebClient plaidWebClient(PlaidProperties props) {
-        String baseUrl = switch (props.getEnv().toLowerCase()) {
-            case "production" -> "https://production.plaid.com";
-            case "development" -> "https://development.plaid.com";
-            default -> "https://sandbox.plaid.com";
-        };
+    public WebClient plaidWebClient(PlaidProperties props, PlaidClientMetrics plaidClientMetrics) {
+        String baseUrl = props.getBaseUrl() != null && !props.getBaseUrl().isBlank()
+                ? props.getBaseUrl()
+                : switch (props.getEnv().toLowerCase()) {
+                    case "production" -> "https://production.plaid.com";
+                    case "development" -> "https://development.plaid.com";
+                    default -> "https://sandbox.plaid.com";
+                };
 
         HttpClient httpClient = HttpClient.create()
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, props.getConnectTimeoutMillis())
@@ -41,6 +43,7 @@ public class PlaidWebClientConfig {
                 .baseUrl(baseUrl)
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .exchangeStrategies(strategies)
+                .filter(plaidClientMetrics)
                 .defaultHeader("PLAID-CLIENT-ID", props.getClientId())
                 .defaultHeader("PLAID-SECRET", props.getSecret())
                 .defaultHeader("Plaid-Version", props.getVersion())
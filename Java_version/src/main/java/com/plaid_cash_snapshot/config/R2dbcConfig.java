@@ -1,16 +1,114 @@
 package com.plaid_cash_snapshot.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.proxy.ProxyConnectionFactory;
 import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
 
+/**
+ * Two pools on the same database (see R2dbcPoolProperties). The interactive pool is
+ * primary, so repositories, the default DatabaseClient and transactions use it;
+ * bulk work asks for the "bulkDatabaseClient" explicitly, and read-only paths may
+ * opt into the optional replica through ReadRouting.
+ * Boot's pool metrics register r2dbc.pool.* gauges per pool bean name; statements on
+ * every pool are timed through StatementMetrics.
+ */
 @Configuration
+@EnableConfigurationProperties({R2dbcProperties.class, R2dbcPoolProperties.class, SlowQueryProperties.class})
 public class R2dbcConfig {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool interactivePool(R2dbcProperties r2dbc, R2dbcPoolProperties pools) {
+        return pool("interactive", r2dbc.getUrl(), r2dbc.getUsername(), r2dbc.getPassword(), pools.getInteractive());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool bulkPool(R2dbcProperties r2dbc, R2dbcPoolProperties pools) {
+        return pool("bulk", r2dbc.getUrl(), r2dbc.getUsername(), r2dbc.getPassword(), pools.getBulk());
+    }
+
+    @Bean
+    @Primary
+    public ConnectionFactory interactiveConnectionFactory(@Qualifier("interactivePool") ConnectionPool pool,
+                                                          MeterRegistry meterRegistry, SlowQueryProperties slowQuery) {
+        return new TimedConnectionFactory(proxied(pool, "interactive", meterRegistry, slowQuery), "interactive", meterRegistry);
+    }
+
+    @Bean
+    public ConnectionFactory bulkConnectionFactory(@Qualifier("bulkPool") ConnectionPool pool,
+                                                   MeterRegistry meterRegistry, SlowQueryProperties slowQuery) {
+        return new TimedConnectionFactory(proxied(pool, "bulk", meterRegistry, slowQuery), "bulk", meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DatabaseClient databaseClient(@Qualifier("interactiveConnectionFactory") ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Bean
+    public DatabaseClient bulkDatabaseClient(@Qualifier("bulkConnectionFactory") ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
     @Bean
     public R2dbcEntityTemplate r2dbcEntityTemplate(ConnectionFactory connectionFactory) {
         return new R2dbcEntityTemplate(connectionFactory);
     }
-}
 
+    /** Read-only replica pool; only created when app.r2dbc.replica.url is set. */
+    @Configuration
+    @ConditionalOnProperty(prefix = "app.r2dbc.replica", name = "url")
+    @EnableConfigurationProperties(ReplicaProperties.class)
+    static class ReplicaConfig {
+
+        @Bean(destroyMethod = "dispose")
+        public ConnectionPool replicaPool(R2dbcProperties r2dbc, ReplicaProperties replica) {
+            return pool("replica", replica.getUrl(),
+                    replica.getUsername() != null ? replica.getUsername() : r2dbc.getUsername(),
+                    replica.getPassword() != null ? replica.getPassword() : r2dbc.getPassword(),
+                    replica.getPool());
+        }
+
+        @Bean
+        public DatabaseClient replicaDatabaseClient(@Qualifier("replicaPool") ConnectionPool pool,
+                                                    MeterRegistry meterRegistry, SlowQueryProperties slowQuery) {
+            return DatabaseClient.create(new TimedConnectionFactory(
+                    proxied(pool, "replica", meterRegistry, slowQuery), "replica", meterRegistry));
+        }
+    }
+
+    private static ConnectionFactory proxied(ConnectionPool pool, String name, MeterRegistry meterRegistry,
+                                             SlowQueryProperties slowQuery) {
+        if (!slowQuery.isEnabled()) return pool;
+        return ProxyConnectionFactory.builder(pool)
+                .listener(new StatementMetrics(name, meterRegistry, slowQuery))
+                .build();
+    }
+
+    private static ConnectionPool pool(String name, String url, String username, String password,
+                                       R2dbcPoolProperties.Pool cfg) {
+        ConnectionFactory target = ConnectionFactoryBuilder.withUrl(url)
+                .username(username)
+                .password(password)
+                .build();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(target)
+                .name(name)
+                .initialSize(cfg.getInitialSize())
+                .maxSize(cfg.getMaxSize())
+                .maxIdleTime(cfg.getMaxIdleTime())
+                .maxAcquireTime(cfg.getAcquireTimeout())
+                .build());
+    }
+}
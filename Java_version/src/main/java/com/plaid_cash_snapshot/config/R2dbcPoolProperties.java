@@ -0,0 +1,35 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Named connection pools over spring.r2dbc.url: "interactive" serves API reads and
+ * small writes, "bulk" takes sync write bursts and batch scans, so a backfill
+ * cannot exhaust the connections dashboards need.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.r2dbc.pools")
+public class R2dbcPoolProperties {
+
+    private Pool interactive = new Pool(2, 12, Duration.ofSeconds(2));
+    private Pool bulk = new Pool(1, 8, Duration.ofSeconds(30));
+
+    @Data
+    public static class Pool {
+        private int initialSize;
+        private int maxSize;
+        private Duration acquireTimeout;                    // fail instead of queueing forever
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        public Pool() {}
+
+        Pool(int initialSize, int maxSize, Duration acquireTimeout) {
+            this.initialSize = initialSize;
+            this.maxSize = maxSize;
+            this.acquireTimeout = acquireTimeout;
+        }
+    }
+}
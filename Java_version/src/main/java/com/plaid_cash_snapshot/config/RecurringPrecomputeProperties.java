@@ -0,0 +1,16 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Nightly recurring precomputation; see RecurringPrecomputeJob. */
+@Data
+@ConfigurationProperties(prefix = "app.recurring.precompute")
+public class RecurringPrecomputeProperties {
+    private boolean enabled = true;
+    private String cron = "0 30 2 * * *";
+    private int concurrency = 8;                          // users processed in parallel
+    private Duration userTimeout = Duration.ofSeconds(60); // per user, both directions
+}
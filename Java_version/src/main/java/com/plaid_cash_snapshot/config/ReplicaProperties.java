@@ -0,0 +1,17 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Optional streaming read replica; routing is done by ReadRouting. Off unless url is set. */
+@Data
+@ConfigurationProperties(prefix = "app.r2dbc.replica")
+public class ReplicaProperties {
+    private String url;
+    private String username;                               // defaults to spring.r2dbc.username
+    private String password;                               // defaults to spring.r2dbc.password
+    private Duration maxLag = Duration.ofSeconds(5);       // beyond this, reads go to the primary
+    private R2dbcPoolProperties.Pool pool = new R2dbcPoolProperties.Pool(1, 8, Duration.ofSeconds(2));
+}
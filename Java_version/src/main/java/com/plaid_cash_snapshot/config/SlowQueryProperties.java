@@ -0,0 +1,15 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Statement timing and the slow-query log; see StatementMetrics. */
+@Data
+@ConfigurationProperties(prefix = "app.r2dbc.slow-query")
+public class SlowQueryProperties {
+    private boolean enabled = true;                      // statement proxy on the pools at all
+    private Duration threshold = Duration.ofMillis(200); // log statements at or above this
+    private double sampleRate = 1.0;                     // fraction of slow statements logged
+}
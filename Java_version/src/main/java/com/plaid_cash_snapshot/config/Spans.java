@@ -0,0 +1,64 @@
+package com.plaid_cash_snapshot.config;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Per-stage spans for reactive chains. Each span is a child of the observation in the
+ * subscriber's Reactor context (the HTTP request, or an enclosing stage) and is put back
+ * into the context of the wrapped publisher, so nested stages and log lines (traceId /
+ * spanId in the MDC, via spring.reactor.context-propagation=auto) follow it across
+ * thread hops.
+ *
+ * Observations are named "traced.<name>" so their meters can be switched off by prefix;
+ * the span name is the plain stage name.
+ */
+@Component
+@RequiredArgsConstructor
+public class Spans {
+
+    private static final String PREFIX = "traced.";
+
+    private final ObservationRegistry observationRegistry;
+
+    public <T> Mono<T> mono(String name, Mono<T> mono, String... lowCardinalityTags) {
+        return Mono.deferContextual(ctx -> {
+            Observation span = start(name, ctx.getOrDefault(ObservationThreadLocalAccessor.KEY, null), lowCardinalityTags);
+            return mono.doOnError(span::error)
+                    .doFinally(sig -> span.stop())
+                    .contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, span));
+        });
+    }
+
+    public <T> Flux<T> flux(String name, Flux<T> flux, String... lowCardinalityTags) {
+        return Flux.deferContextual(ctx -> {
+            Observation span = start(name, ctx.getOrDefault(ObservationThreadLocalAccessor.KEY, null), lowCardinalityTags);
+            return flux.doOnError(span::error)
+                    .doFinally(sig -> span.stop())
+                    .contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, span));
+        });
+    }
+
+    /**
+     * Adds a high-cardinality attribute (ids, counts) to the current span. Call it from an
+     * operator inside the traced publisher, where the span has been restored to the thread.
+     */
+    public void tag(String key, Object value) {
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current != null && value != null) current.highCardinalityKeyValue(key, value.toString());
+    }
+
+    private Observation start(String name, Observation parent, String... lowCardinalityTags) {
+        return Observation.createNotStarted(PREFIX + name, observationRegistry)
+                .contextualName(name)
+                .lowCardinalityKeyValues(KeyValues.of(lowCardinalityTags))
+                .parentObservation(parent)
+                .start();
+    }
+}
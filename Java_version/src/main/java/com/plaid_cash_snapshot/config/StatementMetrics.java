@@ -0,0 +1,126 @@
+package com.plaid_cash_snapshot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.proxy.core.ConnectionInfo;
+import io.r2dbc.proxy.core.MethodExecutionInfo;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.QueryInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.Result;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * r2dbc-proxy listener for one pool. Records, per statement fingerprint:
+ *
+ *   r2dbc.query{pool, statement, outcome}      execution time, until the results are consumed
+ *   r2dbc.query.rows{pool, statement, kind}    rows returned (mapped) or affected (rowsUpdated)
+ *   r2dbc.query.slow{pool, statement}          executions at or above the threshold
+ *
+ * The fingerprint is the SQL with literals replaced and whitespace collapsed; the statement
+ * tag is "verb table hash", e.g. "insert transactions 1f0c3a9e", so tags stay bounded by the
+ * set of statements in the code. Slow statements are logged (sampled) with their connection
+ * acquire wait; bind values are never logged.
+ */
+@Slf4j
+class StatementMetrics implements ProxyExecutionListener {
+
+    private static final String FINGERPRINT = "statementMetrics.fingerprint";
+    private static final String ACQUIRE = "statementMetrics.acquire";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![a-z0-9_$])-?\\d+(?:\\.\\d+)?(?![a-z0-9_])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TABLE = Pattern.compile("\\b(?:from|into|update|join)\\s+([a-z_][a-z0-9_.]*)");
+
+    private final String pool;
+    private final MeterRegistry meterRegistry;
+    private final SlowQueryProperties props;
+    private final Cache<String, Fingerprint> fingerprints = Caffeine.newBuilder().maximumSize(1_000).build();
+
+    StatementMetrics(String pool, MeterRegistry meterRegistry, SlowQueryProperties props) {
+        this.pool = pool;
+        this.meterRegistry = meterRegistry;
+        this.props = props;
+    }
+
+    record Fingerprint(String tag, String sql) {}
+
+    @Override
+    public void afterMethod(MethodExecutionInfo info) {
+        ConnectionInfo connection = info.getConnectionInfo();
+        if (connection == null) return;
+        String method = info.getMethod().getName();
+        if ("create".equals(method)) {
+            // pool checkout; reported with any slow statement on this connection
+            connection.getValueStore().put(ACQUIRE, info.getExecuteDuration());
+        } else if ("getRowsUpdated".equals(method) && info.getTarget() instanceof Result
+                && info.getResult() instanceof Number rows) {
+            Fingerprint fp = connection.getValueStore().get(FINGERPRINT, Fingerprint.class);
+            if (fp != null) {
+                meterRegistry.summary("r2dbc.query.rows", "pool", pool, "statement", fp.tag(), "kind", "affected")
+                        .record(rows.doubleValue());
+            }
+        }
+    }
+
+    @Override
+    public void beforeQuery(QueryExecutionInfo info) {
+        if (info.getConnectionInfo() != null) {
+            info.getConnectionInfo().getValueStore().put(FINGERPRINT, fingerprint(info));
+        }
+    }
+
+    @Override
+    public void afterQuery(QueryExecutionInfo info) {
+        Fingerprint fp = fingerprint(info);
+        Duration elapsed = info.getExecuteDuration();
+        meterRegistry.timer("r2dbc.query", "pool", pool, "statement", fp.tag(),
+                        "outcome", info.isSuccess() ? "success" : "error")
+                .record(elapsed);
+        int returned = info.getCurrentResultCount();
+        if (returned > 0) {
+            meterRegistry.summary("r2dbc.query.rows", "pool", pool, "statement", fp.tag(), "kind", "returned")
+                    .record(returned);
+        }
+
+        if (elapsed.compareTo(props.getThreshold()) >= 0) {
+            meterRegistry.counter("r2dbc.query.slow", "pool", pool, "statement", fp.tag()).increment();
+            if (ThreadLocalRandom.current().nextDouble() < props.getSampleRate()) {
+                Duration acquire = info.getConnectionInfo() == null ? null
+                        : info.getConnectionInfo().getValueStore().get(ACQUIRE, Duration.class);
+                log.warn("Slow query [{}] pool={} took {} ms (acquire {} ms, rows returned {}, {}): {}",
+                        fp.tag(), pool, elapsed.toMillis(), acquire == null ? "?" : acquire.toMillis(), returned,
+                        info.isSuccess() ? "ok" : "failed: " + info.getThrowable(), fp.sql());
+            }
+        }
+    }
+
+    private Fingerprint fingerprint(QueryExecutionInfo info) {
+        String sql = info.getQueries().size() == 1
+                ? info.getQueries().get(0).getQuery()
+                : String.join("; ", info.getQueries().stream().map(QueryInfo::getQuery).toList());
+        return fingerprints.get(sql, StatementMetrics::fingerprint);
+    }
+
+    static Fingerprint fingerprint(String sql) {
+        String normalized = sql.toLowerCase(Locale.ROOT);
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+
+        int space = normalized.indexOf(' ');
+        String verb = space < 0 ? normalized : normalized.substring(0, space);
+        Matcher table = TABLE.matcher(normalized);
+        String tag = verb + (table.find() ? " " + table.group(1) : "")
+                + " " + String.format("%08x", normalized.hashCode());
+        return new Fingerprint(tag, normalized);
+    }
+}
@@ -0,0 +1,42 @@
+package com.plaid_cash_snapshot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Locale;
+
+/** Records r2dbc.pool.acquire{pool, outcome}: time from asking a pool for a connection to getting one. */
+class TimedConnectionFactory implements ConnectionFactory {
+
+    private final ConnectionFactory delegate;
+    private final String pool;
+    private final MeterRegistry meterRegistry;
+
+    TimedConnectionFactory(ConnectionFactory delegate, String pool, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.pool = pool;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return Mono.<Connection>from(delegate.create())
+                    .doFinally(sig -> sample.stop(meterRegistry.timer("r2dbc.pool.acquire",
+                            "pool", pool,
+                            "outcome", sig == SignalType.ON_COMPLETE ? "success" : sig.name().toLowerCase(Locale.ROOT))));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+}
@@ -0,0 +1,24 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** /transactions listing, stream and export; see TransactionQueryService and TransactionExportService. */
+@Data
+@ConfigurationProperties(prefix = "app.transactions")
+public class TransactionQueryProperties {
+    private int defaultPageSize = 100;
+    private int maxPageSize = 500;   // larger limits are clamped
+    private int streamFetchSize = 500; // rows per round trip on the streaming cursor
+    // each open stream holds an interactive connection; more are refused with 503
+    private int streamMaxConcurrent = 4;
+    private Duration streamMaxDuration = Duration.ofMinutes(2);
+    private int exportFetchSize = 1000;
+    private DataSize exportChunkSize = DataSize.ofKilobytes(64); // compressed bytes per response buffer
+    // each export holds a bulk connection while the client downloads; more are refused with 503
+    private int exportMaxConcurrent = 2;
+    private Duration exportMaxDuration = Duration.ofMinutes(10);
+}
@@ -0,0 +1,16 @@
+package com.plaid_cash_snapshot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Cross-sync transaction write batching; see TransactionWriteBuffer. */
+@Data
+@ConfigurationProperties(prefix = "app.sync.write-behind")
+public class WriteBehindProperties {
+    private boolean enabled = false;
+    private int maxBatchRows = 500;                      // flush when this many rows are waiting
+    private Duration maxDelay = Duration.ofMillis(20);   // or when the oldest row has waited this long
+    private int concurrency = 2;                         // batches in flight
+}
@@ -1,13 +1,19 @@
 package com.plaid_cash_snapshot.controller;
 
 import com.plaid_cash_snapshot.dto.*;
+import com.plaid_cash_snapshot.repository.JobRepository;
 import com.plaid_cash_snapshot.service.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.UUID;
@@ -29,6 +35,14 @@ public class LinkController {
 
     private final RecurringService recurringService;
 
+    private final JobRepository jobRepository;
+
+    private final DashboardService dashboardService;
+
+    private final DataVersions dataVersions;
+
+    private final BulkSyncService bulkSyncService;
+
 
 
     @PostMapping("/link-token")
@@ -97,21 +111,55 @@ public class LinkController {
                 .map(ApiResponse::ok);
     }
 
+    // One line per item as it finishes, then a summary; SSE when the client asks for text/event-stream
+    @PostMapping(value = "/sync/bulk", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<BulkSyncEvent> syncBulk(@Valid @RequestBody BulkSyncRequest request) {
+        return bulkSyncService.syncUsers(request);
+    }
+
     @GetMapping("/summary")
-    @ResponseStatus(HttpStatus.OK)
-    public Mono<ApiResponse<BalancesSummary>> summary(@RequestParam("user_id") @NotNull UUID userId) {
-        return balanceService.getSummary(userId)
-                .map(ApiResponse::ok);
+    public Mono<ResponseEntity<ApiResponse<BalancesSummary>>> summary(
+            @RequestParam("user_id") @NotNull UUID userId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return dataVersions.serve("summary", dataVersions.summary(userId), ifNoneMatch,
+                        balanceService.getSummary(userId))
+                .map(LinkController::conditional);
     }
 
     @GetMapping("/recurring")
-    @ResponseStatus(HttpStatus.OK)
-    public Mono<ApiResponse<RecurringResponse>> getRecurring(
+    public Mono<ResponseEntity<ApiResponse<RecurringResponse>>> getRecurring(
             @RequestParam("user_id") @NotNull UUID userId,
-            @RequestParam(name = "type", defaultValue = "outflow") String type
+            @RequestParam(name = "type", defaultValue = "outflow") String type,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        return recurringService.getRecurring(userId, type)
+        return dataVersions.serve("recurring", dataVersions.recurring(userId, type), ifNoneMatch,
+                        recurringService.getRecurring(userId, type))
+                .map(LinkController::conditional);
+    }
+
+    @GetMapping("/dashboard")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<ApiResponse<DashboardResponse>> dashboard(@RequestParam("user_id") @NotNull UUID userId) {
+        return dashboardService.getDashboard(userId)
                 .map(ApiResponse::ok);
     }
 
+    @GetMapping("/jobs/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<ApiResponse<JobStatusResponse>> getJob(@PathVariable("id") UUID jobId) {
+        return jobRepository.findById(jobId)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found")))
+                .map(job -> ApiResponse.ok(JobStatusResponse.from(job)));
+    }
+
+    // 304 with the current ETag, or 200 with the body; clients always revalidate
+    private static <T> ResponseEntity<ApiResponse<T>> conditional(DataVersions.Conditional<T> result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(result.notModified() ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .cacheControl(CacheControl.noCache().cachePrivate());
+        if (result.etag() != null) response.eTag(result.etag());
+        return result.notModified() ? response.build() : response.body(ApiResponse.ok(result.body()));
+    }
+
 }
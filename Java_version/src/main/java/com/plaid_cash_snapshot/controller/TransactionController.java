@@ -0,0 +1,88 @@
+package com.plaid_cash_snapshot.controller;
+
+import com.plaid_cash_snapshot.dto.ApiResponse;
+import com.plaid_cash_snapshot.dto.TransactionPage;
+import com.plaid_cash_snapshot.dto.TransactionView;
+import com.plaid_cash_snapshot.service.TransactionExportService;
+import com.plaid_cash_snapshot.service.TransactionQueryService;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/transactions")
+public class TransactionController {
+
+    private final TransactionQueryService transactionQueryService;
+
+    private final TransactionExportService transactionExportService;
+
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<ApiResponse<TransactionPage>> list(
+            @RequestParam("user_id") @NotNull UUID userId,
+            @RequestParam(name = "account_id", required = false) UUID accountId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "min_amount", required = false) BigDecimal minAmount,
+            @RequestParam(name = "max_amount", required = false) BigDecimal maxAmount,
+            @RequestParam(name = "pending", required = false) Boolean pending,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        var filter = new TransactionQueryService.Filter(userId, accountId, from, to, minAmount, maxAmount, pending);
+        return transactionQueryService.page(filter, cursor, limit)
+                .map(ApiResponse::ok);
+    }
+
+    // Same filters, every matching row as one JSON object per line
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TransactionView> stream(
+            @RequestParam("user_id") @NotNull UUID userId,
+            @RequestParam(name = "account_id", required = false) UUID accountId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "min_amount", required = false) BigDecimal minAmount,
+            @RequestParam(name = "max_amount", required = false) BigDecimal maxAmount,
+            @RequestParam(name = "pending", required = false) Boolean pending,
+            @RequestParam(name = "cursor", required = false) String cursor
+    ) {
+        var filter = new TransactionQueryService.Filter(userId, accountId, from, to, minAmount, maxAmount, pending);
+        return transactionQueryService.stream(filter, cursor);
+    }
+
+    // Gzip-compressed NDJSON or CSV download of a user's transactions, optionally a date range
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> export(
+            @RequestParam("user_id") @NotNull UUID userId,
+            @RequestParam(name = "account_id", required = false) UUID accountId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "format", defaultValue = "ndjson") String format
+    ) {
+        var exportFormat = TransactionExportService.Format.parse(format);
+        var filter = TransactionQueryService.Filter.builder()
+                .userId(userId).accountId(accountId).from(from).to(to)
+                .build();
+        String filename = "transactions-%s.%s.gz".formatted(userId, exportFormat.extension());
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(transactionExportService.export(filter, exportFormat));
+    }
+}
@@ -0,0 +1,32 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+import java.util.UUID;
+
+/** One line of the /sync/bulk stream: an item's result as it completes, then one summary. */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkSyncEvent(
+        @JsonProperty("type") String type, // item | summary
+        @JsonProperty("user_id") UUID userId,
+        @JsonProperty("result") SyncResponse.SyncResult result,
+        @JsonProperty("error") String error,
+        @JsonProperty("summary") Summary summary
+) {
+    public static final String ITEM = "item";
+    public static final String SUMMARY = "summary";
+
+    @Builder
+    public record Summary(
+            @JsonProperty("users") int users,
+            @JsonProperty("items") int items,
+            @JsonProperty("synced") int synced,
+            @JsonProperty("skipped_locked") int skippedLocked,
+            @JsonProperty("failed") int failed,
+            @JsonProperty("total_transactions_synced") long totalTransactionsSynced,
+            @JsonProperty("duration_ms") long durationMs
+    ) {}
+}
@@ -0,0 +1,12 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BulkSyncRequest(
+        @NotEmpty @JsonProperty("user_ids") List<UUID> userIds,
+        @JsonProperty("concurrency") Integer concurrency // optional; defaults to app.sync.bulk.concurrency
+) {}
@@ -0,0 +1,42 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+import java.util.UUID;
+
+/**
+ * Summary and both recurring directions in one payload. Each section carries its own
+ * status so one failing or slow section does not fail the page; partial is true when
+ * any section is missing.
+ */
+@Builder
+public record DashboardResponse(
+        @JsonProperty("user_id") UUID userId,
+        @JsonProperty("summary") Section<BalancesSummary> summary,
+        @JsonProperty("recurring_inflow") Section<RecurringResponse> recurringInflow,
+        @JsonProperty("recurring_outflow") Section<RecurringResponse> recurringOutflow,
+        @JsonProperty("partial") boolean partial
+) {
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+    public static final String TIMEOUT = "timeout";
+
+    public record Section<T>(
+            @JsonProperty("status") String status, // ok | error | timeout
+            @JsonProperty("data") T data,
+            @JsonProperty("error") String error
+    ) {
+        public static <T> Section<T> ok(T data) {
+            return new Section<>(OK, data, null);
+        }
+
+        public static <T> Section<T> failed(String status, String error) {
+            return new Section<>(status, null, error);
+        }
+
+        public boolean isOk() {
+            return OK.equals(status);
+        }
+    }
+}
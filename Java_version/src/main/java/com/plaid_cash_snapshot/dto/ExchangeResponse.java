@@ -3,6 +3,8 @@ package com.plaid_cash_snapshot.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.UUID;
+
 /**
  * Response payload (no access_token exposed).
  * Matches:
@@ -12,7 +14,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  *     "item_id": "...",
  *     "accounts": 6,
  *     "institution": "Royal Bank of Plaid",
- *     "message": "Account successfully linked"
+ *     "message": "Account successfully linked",
+ *     "backfill_job_id": "..."
  *   }
  * }
  */
@@ -20,5 +23,6 @@ public record ExchangeResponse(
         @JsonProperty("item_id") String itemId,
         int accounts,
         String institution,
-        String message
+        String message,
+        @JsonProperty("backfill_job_id") UUID backfillJobId // poll GET /jobs/{id} for history download progress
 ) {}
@@ -0,0 +1,37 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.plaid_cash_snapshot.model.Job;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public record JobStatusResponse(
+        @JsonProperty("job_id") UUID jobId,
+        @JsonProperty("type") String type,
+        @JsonProperty("item_id") UUID itemId,
+        @JsonProperty("status") String status,                 // queued | running | succeeded | failed
+        @JsonProperty("transactions_synced") int transactionsSynced,
+        @JsonProperty("attempts") int attempts,
+        @JsonProperty("max_attempts") int maxAttempts,
+        @JsonProperty("last_error") String lastError,
+        @JsonProperty("next_run_at") OffsetDateTime nextRunAt,
+        @JsonProperty("created_at") OffsetDateTime createdAt,
+        @JsonProperty("finished_at") OffsetDateTime finishedAt
+) {
+    public static JobStatusResponse from(Job job) {
+        return new JobStatusResponse(
+                job.getId(),
+                job.getJobType(),
+                job.getItemId(),
+                job.getStatus(),
+                job.getProgress() != null ? job.getProgress() : 0,
+                job.getAttempts() != null ? job.getAttempts() : 0,
+                job.getMaxAttempts() != null ? job.getMaxAttempts() : 0,
+                job.getLastError(),
+                "queued".equals(job.getStatus()) ? job.getRunAt() : null,
+                job.getCreatedAt(),
+                job.getFinishedAt()
+        );
+    }
+}
@@ -29,7 +29,8 @@ public record RecurringResponse(
             @JsonProperty("occurrences") int occurrences,
             @JsonProperty("frequency_days") Integer frequencyDays, // inferred cadence in days
             @JsonProperty("direction") String direction, // inflow|outflow
-            @JsonProperty("source") String source        // "plaid" | "custom"
+            @JsonProperty("source") String source,       // "plaid" | "custom"
+            @JsonProperty("confidence") Double confidence // 0.0 - 1.0
     ) {}
 
     @Builder
@@ -18,6 +18,11 @@ public record SyncResponse(
     public record SyncResult(
             @JsonProperty("item_id") String itemId,
             @JsonProperty("transactions_synced") int transactionsSynced,
-            @JsonProperty("cursor") String cursor
-    ) {}
+            @JsonProperty("cursor") String cursor,
+            @JsonProperty("status") String status // synced | skipped_locked (another node holds the item's lease) | failed (bulk sync only)
+    ) {
+        public static final String SYNCED = "synced";
+        public static final String SKIPPED_LOCKED = "skipped_locked";
+        public static final String FAILED = "failed";
+    }
 }
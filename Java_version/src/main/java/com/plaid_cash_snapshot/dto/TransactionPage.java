@@ -0,0 +1,15 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+import java.util.List;
+import java.util.UUID;
+
+@Builder
+public record TransactionPage(
+        @JsonProperty("user_id") UUID userId,
+        @JsonProperty("transactions") List<TransactionView> transactions,
+        @JsonProperty("next_cursor") String nextCursor, // null on the last page
+        @JsonProperty("has_more") boolean hasMore
+) {}
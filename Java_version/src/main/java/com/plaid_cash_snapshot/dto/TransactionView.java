@@ -0,0 +1,22 @@
+package com.plaid_cash_snapshot.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Builder
+public record TransactionView(
+        @JsonProperty("id") UUID id,
+        @JsonProperty("transaction_id") String transactionId, // Plaid transaction_id
+        @JsonProperty("account_id") UUID accountId,
+        @JsonProperty("amount") Double amount,
+        @JsonProperty("iso_currency_code") String isoCurrencyCode,
+        @JsonProperty("date") LocalDate date,
+        @JsonProperty("authorized_date") LocalDate authorizedDate,
+        @JsonProperty("name") String name,
+        @JsonProperty("merchant_name") String merchantName,
+        @JsonProperty("category") String category, // Plaid categories, JSON array text
+        @JsonProperty("pending") Boolean pending
+) {}
@@ -0,0 +1,92 @@
+package com.plaid_cash_snapshot.job;
+
+import com.plaid_cash_snapshot.config.JobProperties;
+import com.plaid_cash_snapshot.model.Job;
+import com.plaid_cash_snapshot.service.JobQueue;
+import com.plaid_cash_snapshot.service.TransactionSyncService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the jobs table and runs claimed jobs on this node, at most
+ * app.jobs.concurrency at a time. Jobs survive restarts: anything left running by
+ * a dead node is re-queued by {@link #reclaimStale()} once its lock goes stale
+ * (or marked failed, if that was its last attempt).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JobWorker {
+
+    private final JobQueue jobQueue;
+    private final TransactionSyncService transactionSyncService;
+    private final JobProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Scheduled(fixedDelayString = "${app.jobs.poll-interval-ms:2000}")
+    public void poll() {
+        if (!props.isEnabled()) return;
+        int free = props.getConcurrency() - inFlight.get();
+        if (free <= 0) return;
+
+        inFlight.addAndGet(free); // reserve slots while claiming; unused ones are released as soon as the claim returns
+        jobQueue.claim(free)
+                .collectList()
+                .doOnError(err -> inFlight.addAndGet(-free))
+                .doOnNext(jobs -> inFlight.addAndGet(-(free - jobs.size())))
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(job -> execute(job).doFinally(sig -> inFlight.decrementAndGet()))
+                .subscribe(null, err -> log.warn("Job poll failed: {}", err.toString()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.reclaim-interval-ms:60000}")
+    public void reclaimStale() {
+        if (!props.isEnabled()) return;
+        jobQueue.reclaimStale(props.getLockTimeout())
+                .subscribe(n -> {
+                    if (n > 0) log.warn("Reclaimed {} stale job(s)", n);
+                }, err -> log.warn("Stale job reclaim failed: {}", err.toString()));
+    }
+
+    private Mono<Void> execute(Job job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return run(job)
+                .timeout(props.getJobTimeout())
+                .then(jobQueue.complete(job.getId()))
+                .doOnSuccess(v -> {
+                    sample.stop(meterRegistry.timer("jobs.run", "type", job.getJobType(), "outcome", "success"));
+                    log.info("Job {} ({}) succeeded on attempt {}", job.getId(), job.getJobType(), job.getAttempts());
+                })
+                .onErrorResume(err -> {
+                    sample.stop(meterRegistry.timer("jobs.run", "type", job.getJobType(), "outcome", "error"));
+                    log.warn("Job {} ({}) attempt {}/{} failed: {}", job.getId(), job.getJobType(),
+                            job.getAttempts(), job.getMaxAttempts(), err.toString());
+                    return jobQueue.fail(job, err);
+                })
+                .onErrorResume(err -> {
+                    // the lock goes stale and reclaimStale re-queues it
+                    log.error("Could not record outcome of job {}: {}", job.getId(), err.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> run(Job job) {
+        return switch (job.getJobType()) {
+            // skipped_locked also counts as done: the lease holder is downloading the same history
+            case Job.TYPE_ITEM_BACKFILL -> transactionSyncService
+                    .syncItem(job.getItemId(), total -> jobQueue.progress(job.getId(), total))
+                    .then();
+            default -> Mono.error(new IllegalStateException("Unknown job type: " + job.getJobType()));
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.plaid_cash_snapshot.job;
+
+import com.plaid_cash_snapshot.config.RecurringPrecomputeProperties;
+import com.plaid_cash_snapshot.service.ClusterMembership;
+import com.plaid_cash_snapshot.service.RecurringService;
+import com.plaid_cash_snapshot.service.StageTimings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precomputes recurring streams (both directions) for every user with a linked item,
+ * so interactive /recurring requests read the stored snapshot instead of computing.
+ * One user failing or timing out does not affect the others. Each replica only
+ * processes the users it owns on the cluster hash ring.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@EnableConfigurationProperties(RecurringPrecomputeProperties.class)
+public class RecurringPrecomputeJob {
+
+    private static final String[] DIRECTIONS = {"inflow", "outflow"};
+
+    @Qualifier("bulkDatabaseClient")
+    private final DatabaseClient bulkDb;
+    private final RecurringService recurringService;
+    private final ClusterMembership clusterMembership;
+    private final RecurringPrecomputeProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${app.recurring.precompute.cron:0 30 2 * * *}")
+    public void scheduled() {
+        if (!props.isEnabled()) return;
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Recurring precompute still running from the previous trigger; skipping");
+            return;
+        }
+        run().doFinally(sig -> running.set(false)).subscribe();
+    }
+
+    public Mono<RunReport> run() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            StageTimings timings = new StageTimings();
+            AtomicInteger ok = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+
+            return userIds()
+                    .filter(clusterMembership::owns)
+                    .flatMap(userId -> precomputeUser(userId, timings)
+                            .doOnSuccess(v -> ok.incrementAndGet())
+                            .onErrorResume(err -> {
+                                failed.incrementAndGet();
+                                log.warn("Recurring precompute failed for user {}: {}", userId, err.toString());
+                                return Mono.empty();
+                            }), props.getConcurrency())
+                    .then(Mono.fromSupplier(() -> report(start, ok.get(), failed.get(), timings)));
+        });
+    }
+
+    private Flux<UUID> userIds() {
+        return bulkDb.sql("SELECT DISTINCT user_id FROM items")
+                .map((row, meta) -> row.get("user_id", UUID.class))
+                .all();
+    }
+
+    private Mono<Void> precomputeUser(UUID userId, StageTimings timings) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return Flux.fromArray(DIRECTIONS)
+                .concatMap(direction -> recurringService.refresh(userId, direction, timings))
+                .then()
+                .timeout(props.getUserTimeout())
+                .doFinally(sig -> sample.stop(meterRegistry.timer("recurring.precompute.user", "outcome", sig.name())));
+    }
+
+    private RunReport report(long startNanos, int ok, int failed, StageTimings timings) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        int users = ok + failed;
+        double usersPerSec = elapsed.toMillis() == 0 ? users : users * 1000.0 / elapsed.toMillis();
+
+        timings.totals().forEach((stage, nanos) ->
+                meterRegistry.timer("recurring.precompute.stage", "stage", stage).record(nanos, TimeUnit.NANOSECONDS));
+        meterRegistry.timer("recurring.precompute.run").record(elapsed);
+        meterRegistry.counter("recurring.precompute.users", "outcome", "ok").increment(ok);
+        meterRegistry.counter("recurring.precompute.users", "outcome", "failed").increment(failed);
+
+        RunReport report = new RunReport(users, ok, failed, elapsed, usersPerSec, timings.totals());
+        log.info("Recurring precompute done: {} users ({} failed) in {} ms, {} users/sec, stage ms {}",
+                users, failed, elapsed.toMillis(), String.format("%.1f", usersPerSec), report.stageMillis());
+        return report;
+    }
+
+    public record RunReport(int users, int succeeded, int failed, Duration elapsed, double usersPerSecond,
+                            Map<String, Long> stageNanos) {
+        Map<String, Long> stageMillis() {
+            Map<String, Long> out = new TreeMap<>();
+            stageNanos.forEach((k, v) -> out.put(k, TimeUnit.NANOSECONDS.toMillis(v)));
+            return out;
+        }
+    }
+}
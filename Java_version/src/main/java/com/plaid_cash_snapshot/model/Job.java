@@ -0,0 +1,64 @@
+package com.plaid_cash_snapshot.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("jobs")
+public class Job {
+
+    public static final String TYPE_ITEM_BACKFILL = "item_backfill";
+
+    @Id
+    private UUID id;
+
+    @Column("job_type")
+    private String jobType;
+
+    @Column("user_id")
+    private UUID userId;
+
+    @Column("item_id")
+    private UUID itemId;   // FK to items.id (UUID)
+
+    @Column("status")
+    private String status; // queued | running | succeeded | failed
+
+    @Column("attempts")
+    private Integer attempts;
+
+    @Column("max_attempts")
+    private Integer maxAttempts;
+
+    @Column("run_at")
+    private OffsetDateTime runAt;   // not claimable before this (retry backoff)
+
+    @Column("locked_by")
+    private String lockedBy;        // node id of the worker running it
+
+    @Column("locked_at")
+    private OffsetDateTime lockedAt;
+
+    @Column("progress")
+    private Integer progress;       // transactions synced so far
+
+    @Column("last_error")
+    private String lastError;
+
+    @Column("created_at")
+    private OffsetDateTime createdAt;
+
+    @Column("updated_at")
+    private OffsetDateTime updatedAt;
+
+    @Column("finished_at")
+    private OffsetDateTime finishedAt;
+}
@@ -21,9 +21,15 @@ public class RecurringTransaction {
     @Column("user_id")
     private UUID userId;
 
+    @Column("stream_id")
+    private String streamId; // Plaid stream_id; null for custom streams
+
     @Column("merchant_name")
     private String merchantName;
 
+    @Column("source")
+    private String source; // plaid | custom
+
     @Column("direction")
     private String direction; // inflow | outflow
 
@@ -42,12 +48,18 @@ public class RecurringTransaction {
     @Column("occurrences")
     private Integer occurrences;
 
+    @Column("first_date")
+    private LocalDate firstDate;
+
     @Column("last_date")
     private LocalDate lastDate;
 
     @Column("next_estimated_date")
     private LocalDate nextEstimatedDate;
 
+    @Column("frequency_days")
+    private Integer frequencyDays;
+
     @Column("confidence")
     private Double confidence; // 0.0 - 1.0
 
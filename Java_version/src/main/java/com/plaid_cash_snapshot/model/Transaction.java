@@ -28,7 +28,7 @@ public class Transaction {
     private UUID accountId;
 
     @Column("transaction_id")
-    private String transactionId; // Plaid transaction_id (UNIQUE)
+    private String transactionId; // Plaid transaction_id (unique per user_id)
 
     @Column("amount")
     private Double amount;
@@ -51,6 +51,10 @@ public class Transaction {
     @Column("merchant_name")
     private String merchantName;
 
+    // FK -> merchants.id (normalized merchant dictionary)
+    @Column("merchant_id")
+    private Integer merchantId;
+
     // JSONB columns; JsonNode keeps it flexible/minimal
     @Column("category")
     private String category;
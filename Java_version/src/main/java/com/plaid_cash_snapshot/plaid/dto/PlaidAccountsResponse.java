@@ -6,7 +6,8 @@ import java.util.List;
 
 /** Plaid /accounts/get (or /accounts/balance/get) response - minimal */
 public record PlaidAccountsResponse(
-        List<Account> accounts
+        List<Account> accounts,
+        @JsonProperty("request_id") String requestId
 ) {
     public record Account(
             @JsonProperty("account_id") String accountId,
@@ -5,7 +5,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
 public record PlaidBalancesResponse(
-        List<Account> accounts
+        List<Account> accounts,
+        @JsonProperty("request_id") String requestId
 ) {
     public record Account(
             @JsonProperty("account_id") String accountId,
@@ -0,0 +1,11 @@
+package com.plaid_cash_snapshot.repository;
+
+import com.plaid_cash_snapshot.model.Job;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+public interface JobRepository extends ReactiveCrudRepository<Job, UUID> {
+    Flux<Job> findByItemId(UUID itemId);
+}
@@ -10,5 +10,4 @@ import java.util.UUID;
 public interface TransactionRepository extends ReactiveCrudRepository<Transaction, UUID> {
     Mono<Transaction> findByTransactionId(String transactionId);
     Flux<Transaction> findByAccountId(UUID accountId);
-    Flux<Transaction> findByUserId(UUID userId);
 }
@@ -0,0 +1,49 @@
+package com.plaid_cash_snapshot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.plaid_cash_snapshot.config.AccountDirectoryProperties;
+import com.plaid_cash_snapshot.model.Account;
+import com.plaid_cash_snapshot.repository.AccountRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-item map of Plaid account_id -> accounts.id (UUID).
+ * Seeded by ItemLinkService from the ids its upsert returns, so the first sync and
+ * balance refresh after linking do not have to re-read accounts.
+ */
+@Service
+@EnableConfigurationProperties(AccountDirectoryProperties.class)
+public class AccountDirectory {
+
+    private final AccountRepository accountRepository;
+
+    // accounts only change when an item is (re)linked; expiry bounds staleness across replicas
+    private final Cache<UUID, Map<String, UUID>> byItem;
+
+    public AccountDirectory(AccountRepository accountRepository, AccountDirectoryProperties props) {
+        this.accountRepository = accountRepository;
+        this.byItem = Caffeine.newBuilder()
+                .maximumSize(props.getMaxSize())
+                .expireAfterWrite(props.getTtl())
+                .build();
+    }
+
+    public Mono<Map<String, UUID>> forItem(UUID itemId) {
+        Map<String, UUID> cached = byItem.getIfPresent(itemId);
+        if (cached != null) return Mono.just(cached);
+        return accountRepository.findByItemId(itemId)
+                .collectMap(Account::getAccountId, Account::getId)
+                .map(Map::copyOf)
+                .doOnNext(map -> byItem.put(itemId, map));
+    }
+
+    public void put(UUID itemId, Map<String, UUID> accountIdToUuid) {
+        byItem.put(itemId, Map.copyOf(accountIdToUuid));
+    }
+}
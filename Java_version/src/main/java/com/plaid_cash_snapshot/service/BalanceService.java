@@ -1,27 +1,41 @@
 package com.plaid_cash_snapshot.service;
 
+import com.plaid_cash_snapshot.config.PlaidClientMetrics;
+import com.plaid_cash_snapshot.config.Spans;
 import com.plaid_cash_snapshot.dto.BalancesSummary;
+import com.plaid_cash_snapshot.model.Item;
 import com.plaid_cash_snapshot.plaid.dto.PlaidBalancesResponse;
 import com.plaid_cash_snapshot.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class BalanceService {
 
     private final DatabaseClient db;
     private final ItemRepository itemRepository;
+    private final AccountDirectory accountDirectory;
+    private final MeterRegistry meterRegistry;
+    private final PlaidClientMetrics plaidClientMetrics;
+    private final Spans spans;
 
     @Value("${plaid.base-url:https://sandbox.plaid.com}")
     private String plaidBaseUrl;
@@ -35,6 +49,7 @@ public class BalanceService {
     private WebClient client() {
         return WebClient.builder()
                 .baseUrl(plaidBaseUrl)
+                .filter(plaidClientMetrics)
                 .build();
     }
 
@@ -44,107 +59,130 @@ public class BalanceService {
      * and loop over each item/access_token before aggregating.
      */
     public Mono<BalancesSummary> getSummary(UUID userId) {
-        WebClient http = client();
-
         return itemRepository.findByUserId(userId)
                 .single() // use .next() if you might have multiple items
-                .flatMap(item -> http.post()
-                        .uri("/accounts/balance/get")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(Map.of(
-                                "access_token", item.getAccessToken(),
-                                "client_id", plaidClientId,
-                                "secret", plaidSecret
-                        ))
-                        .retrieve()
-                        .bodyToMono(PlaidBalancesResponse.class)
-                        .flatMapMany(res -> {
-                            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
-                            return reactor.core.publisher.Flux.fromIterable(res.accounts())
-                                    .flatMap(acc -> {
-                                        // Idempotent upsert by (user_id, account_id)
-                                        String sql = """
-                                            INSERT INTO account_balances
-                                              (user_id, account_id, available, current_balance, limit_amount,
-                                               iso_currency_code, unofficial_currency_code, last_updated_datetime, created_at)
-                                            VALUES (:userId, (SELECT id FROM accounts WHERE account_id = :accId LIMIT 1),
-                                                    :available, :current, :limit, :iso, :unofficial, :asOf, now())
-                                            ON CONFLICT (user_id, account_id)
-                                            DO UPDATE SET
-                                                available                = EXCLUDED.available,
-                                                current_balance          = EXCLUDED.current_balance,
-                                                limit_amount             = EXCLUDED.limit_amount,
-                                                iso_currency_code        = EXCLUDED.iso_currency_code,
-                                                unofficial_currency_code = EXCLUDED.unofficial_currency_code,
-                                                last_updated_datetime    = EXCLUDED.last_updated_datetime
-                                            """;
-
-                                        var insert = db.sql(sql)
-                                                .bind("userId", userId)
-                                                .bind("accId", acc.accountId())
-                                                .bind("asOf", now);
-
-                                        // current is typically present; still bind safely
-                                        if (acc.balances().current() != null) {
-                                            insert = insert.bind("current", acc.balances().current());
-                                        } else {
-                                            insert = insert.bindNull("current", Double.class);
-                                        }
-
-                                        // available (nullable)
-                                        if (acc.balances().available() != null) {
-                                            insert = insert.bind("available", acc.balances().available());
-                                        } else {
-                                            insert = insert.bindNull("available", Double.class);
-                                        }
-
-                                        // limit (nullable; mostly for credit)
-                                        if (acc.balances().limit() != null) {
-                                            insert = insert.bind("limit", acc.balances().limit());
-                                        } else {
-                                            insert = insert.bindNull("limit", Double.class);
-                                        }
-
-                                        // iso_currency_code (nullable)
-                                        if (acc.balances().isoCurrencyCode() != null) {
-                                            insert = insert.bind("iso", acc.balances().isoCurrencyCode());
-                                        } else {
-                                            insert = insert.bindNull("iso", String.class);
-                                        }
-
-                                        // unofficial_currency_code (nullable)
-                                        if (acc.balances().unofficialCurrencyCode() != null) {
-                                            insert = insert.bind("unofficial", acc.balances().unofficialCurrencyCode());
-                                        } else {
-                                            insert = insert.bindNull("unofficial", String.class);
-                                        }
-
-                                        return insert.fetch().rowsUpdated();
-                                    });
-                        })
-                        .then(
-                                // Read the summary from the view
-                                db.sql("""
-                                      SELECT user_id,
-                                             chequing_total,
-                                             savings_total,
-                                             credit_cards_total_owed,
-                                             net_cash,
-                                             as_of
-                                        FROM cash_snapshot_v
-                                       WHERE user_id = :uid
-                                      """)
-                                        .bind("uid", userId)
-                                        .map((row, meta) -> new BalancesSummary(
-                                                row.get("user_id", UUID.class),
-                                                row.get("chequing_total", Double.class),
-                                                row.get("savings_total", Double.class),
-                                                row.get("credit_cards_total_owed", Double.class),
-                                                row.get("net_cash", Double.class),
-                                                row.get("as_of", OffsetDateTime.class)
-                                        ))
-                                        .one()
-                        )
+                .flatMap(item -> getSummary(userId, item));
+    }
+
+    /** Refreshes balances for an item the caller already loaded, then reads the summary. */
+    public Mono<BalancesSummary> getSummary(UUID userId, Item item) {
+        WebClient http = client();
+
+        return http.post()
+                .uri("/accounts/balance/get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "access_token", item.getAccessToken(),
+                        "client_id", plaidClientId,
+                        "secret", plaidSecret
+                ))
+                .retrieve()
+                .bodyToMono(PlaidBalancesResponse.class)
+                .zipWith(accountDirectory.forItem(item.getId()))
+                .flatMapMany(tuple -> {
+                    PlaidBalancesResponse res = tuple.getT1();
+                    Map<String, UUID> accountIdToUuid = tuple.getT2();
+                    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                    return timedUpsert(reactor.core.publisher.Flux.fromIterable(res.accounts())
+                            .flatMap(acc -> {
+                                UUID accountUuid = accountIdToUuid.get(acc.accountId());
+                                if (accountUuid == null) {
+                                    log.warn("Missing account mapping for item {} plaidAccountId {}. Skipping balance.",
+                                            item.getId(), acc.accountId());
+                                    return Mono.empty();
+                                }
+
+                                // Idempotent upsert by (user_id, account_id)
+                                String sql = """
+                                    INSERT INTO account_balances
+                                      (user_id, account_id, available, current_balance, limit_amount,
+                                       iso_currency_code, unofficial_currency_code, last_updated_datetime, created_at)
+                                    VALUES (:userId, :accId,
+                                            :available, :current, :limit, :iso, :unofficial, :asOf, now())
+                                    ON CONFLICT (user_id, account_id)
+                                    DO UPDATE SET
+                                        available                = EXCLUDED.available,
+                                        current_balance          = EXCLUDED.current_balance,
+                                        limit_amount             = EXCLUDED.limit_amount,
+                                        iso_currency_code        = EXCLUDED.iso_currency_code,
+                                        unofficial_currency_code = EXCLUDED.unofficial_currency_code,
+                                        last_updated_datetime    = EXCLUDED.last_updated_datetime
+                                    """;
+
+                                var insert = db.sql(sql)
+                                        .bind("userId", userId)
+                                        .bind("accId", accountUuid)
+                                        .bind("asOf", now);
+
+                                // current is typically present; still bind safely
+                                if (acc.balances().current() != null) {
+                                    insert = insert.bind("current", acc.balances().current());
+                                } else {
+                                    insert = insert.bindNull("current", Double.class);
+                                }
+
+                                // available (nullable)
+                                if (acc.balances().available() != null) {
+                                    insert = insert.bind("available", acc.balances().available());
+                                } else {
+                                    insert = insert.bindNull("available", Double.class);
+                                }
+
+                                // limit (nullable; mostly for credit)
+                                if (acc.balances().limit() != null) {
+                                    insert = insert.bind("limit", acc.balances().limit());
+                                } else {
+                                    insert = insert.bindNull("limit", Double.class);
+                                }
+
+                                // iso_currency_code (nullable)
+                                if (acc.balances().isoCurrencyCode() != null) {
+                                    insert = insert.bind("iso", acc.balances().isoCurrencyCode());
+                                } else {
+                                    insert = insert.bindNull("iso", String.class);
+                                }
+
+                                // unofficial_currency_code (nullable)
+                                if (acc.balances().unofficialCurrencyCode() != null) {
+                                    insert = insert.bind("unofficial", acc.balances().unofficialCurrencyCode());
+                                } else {
+                                    insert = insert.bindNull("unofficial", String.class);
+                                }
+
+                                return insert.fetch().rowsUpdated();
+                            }));
+                })
+                .then(
+                        // Read the summary from the view on the primary: it must include the balances just written
+                        Mono.defer(() -> db.sql("""
+                              SELECT user_id,
+                                     chequing_total,
+                                     savings_total,
+                                     credit_cards_total_owed,
+                                     net_cash,
+                                     as_of
+                                FROM cash_snapshot_v
+                               WHERE user_id = :uid
+                              """)
+                                .bind("uid", userId)
+                                .map((row, meta) -> new BalancesSummary(
+                                        row.get("user_id", UUID.class),
+                                        row.get("chequing_total", Double.class),
+                                        row.get("savings_total", Double.class),
+                                        row.get("credit_cards_total_owed", Double.class),
+                                        row.get("net_cash", Double.class),
+                                        row.get("as_of", OffsetDateTime.class)
+                                ))
+                                .one())
                 );
     }
+
+    // balances.upsert{outcome}: DB time for writing one item's balances, inside a db.batch span
+    private <T> Flux<T> timedUpsert(Flux<T> upsert) {
+        return spans.flux("db.batch", Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return upsert.doFinally(sig -> sample.stop(meterRegistry.timer("balances.upsert",
+                    "outcome", sig == SignalType.ON_COMPLETE ? "success" : sig.name().toLowerCase(Locale.ROOT))));
+        }), "table", "account_balances");
+    }
 }
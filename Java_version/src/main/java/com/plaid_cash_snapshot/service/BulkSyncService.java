@@ -0,0 +1,124 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.BulkSyncProperties;
+import com.plaid_cash_snapshot.config.Spans;
+import com.plaid_cash_snapshot.dto.BulkSyncEvent;
+import com.plaid_cash_snapshot.dto.BulkSyncRequest;
+import com.plaid_cash_snapshot.dto.SyncResponse;
+import com.plaid_cash_snapshot.model.Item;
+import com.plaid_cash_snapshot.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Syncs every item of many users as one operation. Items are synced at most
+ * {@code concurrency} at a time (each under its lease, as for /sync) and each result
+ * is emitted as soon as that item finishes, followed by one summary. A failing item is
+ * reported and does not stop the others; cancelling the request cancels the syncs in
+ * flight and releases their leases.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@EnableConfigurationProperties(BulkSyncProperties.class)
+public class BulkSyncService {
+
+    private final ItemRepository itemRepository;
+    private final TransactionSyncService transactionSyncService;
+    private final BulkSyncProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Spans spans;
+
+    public Flux<BulkSyncEvent> syncUsers(BulkSyncRequest request) {
+        var userIds = new LinkedHashSet<>(request.userIds());
+        if (userIds.size() > properties.getMaxUsers()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + properties.getMaxUsers() + " users per bulk sync"));
+        }
+        int concurrency = request.concurrency() == null || request.concurrency() <= 0
+                ? properties.getConcurrency()
+                : Math.min(request.concurrency(), properties.getMaxConcurrency());
+
+        return spans.flux("sync.bulk", Flux.defer(() -> {
+            long startedAt = System.nanoTime();
+            Tally tally = new Tally();
+
+            // items are looked up lazily, user by user, as sync slots free up
+            Flux<BulkSyncEvent> items = Flux.fromIterable(userIds)
+                    .concatMap(userId -> itemRepository.findByUserId(userId))
+                    .flatMap(item -> syncOne(item, tally), concurrency);
+
+            return items.concatWith(Mono.fromSupplier(() -> {
+                BulkSyncEvent.Summary summary = tally.summary(userIds.size(), (System.nanoTime() - startedAt) / 1_000_000);
+                log.info("Bulk sync of {} users: {}", userIds.size(), summary);
+                return BulkSyncEvent.builder().type(BulkSyncEvent.SUMMARY).summary(summary).build();
+            }));
+        }), "concurrency", Integer.toString(concurrency));
+    }
+
+    private Mono<BulkSyncEvent> syncOne(Item item, Tally tally) {
+        return transactionSyncService.syncItem(item, TransactionSyncService.SyncProgress.NONE)
+                .map(result -> {
+                    tally.record(result);
+                    return BulkSyncEvent.builder().type(BulkSyncEvent.ITEM).userId(item.getUserId()).result(result).build();
+                })
+                .onErrorResume(err -> {
+                    log.warn("Bulk sync of item {} failed: {}", item.getId(), err.toString());
+                    SyncResponse.SyncResult failed = SyncResponse.SyncResult.builder()
+                            .itemId(item.getItemId())
+                            .status(SyncResponse.SyncResult.FAILED)
+                            .build();
+                    tally.record(failed);
+                    return Mono.just(BulkSyncEvent.builder()
+                            .type(BulkSyncEvent.ITEM)
+                            .userId(item.getUserId())
+                            .result(failed)
+                            .error(err.getMessage())
+                            .build());
+                })
+                .doOnNext(event -> meterRegistry.counter("sync.bulk.items", "status", event.result().status()).increment());
+    }
+
+    // Results arrive on whichever thread finished the item
+    private static final class Tally {
+        private final AtomicInteger items = new AtomicInteger();
+        private final AtomicInteger synced = new AtomicInteger();
+        private final AtomicInteger skippedLocked = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong transactions = new AtomicLong();
+
+        void record(SyncResponse.SyncResult result) {
+            items.incrementAndGet();
+            transactions.addAndGet(result.transactionsSynced());
+            switch (result.status()) {
+                case SyncResponse.SyncResult.SYNCED -> synced.incrementAndGet();
+                case SyncResponse.SyncResult.SKIPPED_LOCKED -> skippedLocked.incrementAndGet();
+                default -> failed.incrementAndGet();
+            }
+        }
+
+        BulkSyncEvent.Summary summary(int users, long durationMs) {
+            return BulkSyncEvent.Summary.builder()
+                    .users(users)
+                    .items(items.get())
+                    .synced(synced.get())
+                    .skippedLocked(skippedLocked.get())
+                    .failed(failed.get())
+                    .totalTransactionsSynced(transactions.get())
+                    .durationMs(durationMs)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.ClusterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tracks live replicas through heartbeats in cluster_nodes and assigns users to
+ * nodes on a consistent-hash ring of user_id. Background jobs only schedule work
+ * for users this node {@link #owns(UUID)}; when a node joins or stops heart-beating
+ * the ring is rebuilt on the next heartbeat and its users move to the neighbours.
+ */
+@Service
+@Slf4j
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterMembership {
+
+    private final DatabaseClient db;
+    private final NodeIdentity node;
+    private final ClusterProperties props;
+
+    private volatile List<String> members = List.of();
+    private volatile HashRing ring = HashRing.EMPTY;
+    private volatile long lastHeartbeatNanos;
+
+    // heartbeats are background traffic and stay off the interactive pool
+    public ClusterMembership(@Qualifier("bulkDatabaseClient") DatabaseClient db, NodeIdentity node,
+                             ClusterProperties props, MeterRegistry meterRegistry) {
+        this.db = db;
+        this.node = node;
+        this.props = props;
+        // nanoTime has an arbitrary origin; start out already stale so nothing is owned before the first heartbeat
+        this.lastHeartbeatNanos = System.nanoTime() - props.getNodeTtl().toNanos() - 1;
+        meterRegistry.gauge("cluster.nodes", this, m -> m.members.size());
+    }
+
+    /**
+     * True if this node should run background work for {@code userId}. Owns nothing
+     * until the first heartbeat, or once its own heartbeat is older than the node TTL
+     * (the other replicas have dropped it from their rings by then).
+     */
+    public boolean owns(UUID userId) {
+        if (System.nanoTime() - lastHeartbeatNanos > props.getNodeTtl().toNanos()) return false;
+        return node.id().equals(ring.nodeFor(userId));
+    }
+
+    public List<String> members() {
+        return members;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        long sentAt = System.nanoTime();
+        db.sql("""
+                        INSERT INTO cluster_nodes (node_id, started_at, heartbeat_at) VALUES (:node, now(), now())
+                        ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()
+                        """)
+                .bind("node", node.id())
+                .then()
+                // compared against the database clock, like the heartbeat itself
+                .then(db.sql("""
+                                SELECT node_id FROM cluster_nodes
+                                 WHERE heartbeat_at > now() - make_interval(secs => :ttlSeconds)
+                                 ORDER BY node_id
+                                """)
+                        .bind("ttlSeconds", props.getNodeTtl().toMillis() / 1000.0)
+                        .map((row, meta) -> row.get("node_id", String.class))
+                        .all()
+                        .collectList())
+                .subscribe(live -> {
+                    lastHeartbeatNanos = sentAt;
+                    if (!live.equals(members)) {
+                        ring = HashRing.of(live, props.getVirtualNodes());
+                        log.info("Cluster membership changed: {} -> {}", members, live);
+                        members = List.copyOf(live);
+                    }
+                }, err -> log.warn("Cluster heartbeat failed: {}", err.toString()));
+    }
+
+    /** Leave the ring right away so the other replicas take over without waiting for the TTL. */
+    @PreDestroy
+    public void leave() {
+        db.sql("DELETE FROM cluster_nodes WHERE node_id = :node")
+                .bind("node", node.id())
+                .then()
+                .timeout(Duration.ofSeconds(5))
+                .onErrorResume(err -> {
+                    log.warn("Could not deregister node {}: {}", node.id(), err.toString());
+                    return Mono.empty();
+                })
+                .block();
+    }
+}
@@ -0,0 +1,154 @@
+package com.plaid_cash_snapshot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom recurring detector over primitive columns.
+ * Rows are grouped by (merchant id, $5 amount bucket), sorted once by (group, day)
+ * and each group is scanned in a single pass; no boxed values in the hot loop.
+ */
+final class CustomRecurringDetector {
+
+    static final int MIN_OCCURRENCES = 3;
+    static final int DEFAULT_FREQUENCY_DAYS = 30;
+
+    private CustomRecurringDetector() {}
+
+    /** Candidate rows for one user and direction, one entry per transaction. */
+    static final class Columns {
+        int size;
+        int[] merchantIds;
+        int[] epochDays;
+        long[] amountCents; // absolute value
+
+        // display names for rows without a merchant_id (keyed by the synthetic negative id)
+        final Map<Integer, String> legacyNames = new HashMap<>();
+
+        Columns(int capacity) {
+            int cap = Math.max(capacity, 16);
+            merchantIds = new int[cap];
+            epochDays = new int[cap];
+            amountCents = new long[cap];
+        }
+
+        Columns add(int merchantId, int epochDay, long absAmountCents) {
+            if (size == merchantIds.length) {
+                int cap = size + (size >> 1);
+                merchantIds = Arrays.copyOf(merchantIds, cap);
+                epochDays = Arrays.copyOf(epochDays, cap);
+                amountCents = Arrays.copyOf(amountCents, cap);
+            }
+            merchantIds[size] = merchantId;
+            epochDays[size] = epochDay;
+            amountCents[size] = absAmountCents;
+            size++;
+            return this;
+        }
+    }
+
+    record Candidate(
+            int merchantId,
+            int occurrences,
+            int firstEpochDay,
+            int lastEpochDay,
+            int frequencyDays,
+            double avgAbsAmount,
+            double confidence
+    ) {}
+
+    static List<Candidate> detect(Columns c) {
+        int n = c.size;
+        if (n < MIN_OCCURRENCES) return List.of();
+
+        // 1) dense group ids for (merchant, bucket); bucket matches the old round(|amount| / 5) * 5
+        long[] groupKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int bucket = (int) Math.round(c.amountCents[i] / 500.0);
+            groupKeys[i] = ((long) c.merchantIds[i] << 32) | (bucket & 0xFFFFFFFFL);
+        }
+        long[] distinct = groupKeys.clone();
+        Arrays.sort(distinct);
+        int groups = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) distinct[groups++] = distinct[i];
+        }
+
+        // 2) per-group sums, and one packed (group, day) key per row
+        long[] sumCents = new long[groups];
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            int gid = Arrays.binarySearch(distinct, 0, groups, groupKeys[i]);
+            sumCents[gid] += c.amountCents[i];
+            packed[i] = ((long) gid << 32) | ((long) c.epochDays[i] - Integer.MIN_VALUE);
+        }
+        Arrays.sort(packed);
+
+        // 3) single pass per group over sorted days
+        List<Candidate> out = new ArrayList<>();
+        long[] deltas = new long[n];
+        int i = 0;
+        while (i < n) {
+            int gid = (int) (packed[i] >>> 32);
+            int end = i + 1;
+            while (end < n && (int) (packed[end] >>> 32) == gid) end++;
+
+            int count = end - i;
+            if (count >= MIN_OCCURRENCES) {
+                int prev = day(packed[i]);
+                long sum = 0;
+                long sumSq = 0;
+                for (int k = i + 1; k < end; k++) {
+                    int d = day(packed[k]);
+                    long delta = d - prev;
+                    deltas[k - i - 1] = delta;
+                    sum += delta;
+                    sumSq += delta * delta;
+                    prev = d;
+                }
+                double confidence = confidence(count, sum, sumSq);
+                int frequencyDays = (int) Math.round(median(deltas, count - 1));
+                int merchantId = (int) (distinct[gid] >> 32);
+                out.add(new Candidate(
+                        merchantId,
+                        count,
+                        day(packed[i]),
+                        day(packed[end - 1]),
+                        frequencyDays,
+                        sumCents[gid] / (double) count / 100.0,
+                        confidence
+                ));
+            }
+            i = end;
+        }
+
+        out.sort((a, b) -> Integer.compare(b.occurrences(), a.occurrences()));
+        return out;
+    }
+
+    /**
+     * Same shape as recurring_streams_v: more occurrences raise confidence,
+     * irregular gaps (stddev relative to the mean gap) lower it. Clamped to [0, 1].
+     */
+    static double confidence(int occurrences, long gapSum, long gapSumSq) {
+        int gaps = occurrences - 1;
+        double mean = gapSum / (double) gaps;
+        double stddev = Math.sqrt(Math.max(0d, gapSumSq / (double) gaps - mean * mean));
+        double score = 0.5 + occurrences / 10.0 - (mean > 0 ? stddev / mean * 0.2 : 0d);
+        return Math.round(Math.max(0d, Math.min(1d, score)) * 100.0) / 100.0;
+    }
+
+    private static int day(long packed) {
+        return (int) ((packed & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+    }
+
+    /** Median of values[0..len); sorts that range in place. */
+    static double median(long[] values, int len) {
+        if (len == 0) return DEFAULT_FREQUENCY_DAYS;
+        Arrays.sort(values, 0, len);
+        return len % 2 == 1 ? values[len / 2] : (values[len / 2 - 1] + values[len / 2]) / 2.0;
+    }
+}
@@ -0,0 +1,76 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.DashboardProperties;
+import com.plaid_cash_snapshot.config.Spans;
+import com.plaid_cash_snapshot.dto.DashboardResponse;
+import com.plaid_cash_snapshot.dto.DashboardResponse.Section;
+import com.plaid_cash_snapshot.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One round trip for the dashboard: the user's item is loaded once, then the balance
+ * refresh and both recurring directions run concurrently under one deadline. The two
+ * recurring directions share a single Plaid call through PlaidRecurringCache.
+ * A failed or late section is reported in place and does not fail the others.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@EnableConfigurationProperties(DashboardProperties.class)
+public class DashboardService {
+
+    private final ItemRepository itemRepository;
+    private final BalanceService balanceService;
+    private final RecurringService recurringService;
+    private final DashboardProperties props;
+    private final Spans spans;
+    private final MeterRegistry meterRegistry;
+
+    public Mono<DashboardResponse> getDashboard(UUID userId) {
+        return itemRepository.findByUserId(userId)
+                .next() // same single-item assumption as /summary and /recurring
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No linked item for user")))
+                .flatMap(item -> {
+                    Duration deadline = props.getDeadline();
+                    return Mono.zip(
+                            section("summary", userId, balanceService.getSummary(userId, item), deadline),
+                            section("recurring_inflow", userId, recurringService.getRecurring(userId, "inflow", item), deadline),
+                            section("recurring_outflow", userId, recurringService.getRecurring(userId, "outflow", item), deadline)
+                    ).map(t -> DashboardResponse.builder()
+                            .userId(userId)
+                            .summary(t.getT1())
+                            .recurringInflow(t.getT2())
+                            .recurringOutflow(t.getT3())
+                            .partial(!(t.getT1().isOk() && t.getT2().isOk() && t.getT3().isOk()))
+                            .build());
+                });
+    }
+
+    // all sections are subscribed together by zip, so the same timeout is one shared deadline
+    private <T> Mono<Section<T>> section(String name, UUID userId, Mono<T> source, Duration deadline) {
+        return spans.mono("dashboard." + name, source)
+                .timeout(deadline)
+                .map(Section::ok)
+                .switchIfEmpty(Mono.fromSupplier(() -> Section.<T>failed(DashboardResponse.ERROR, "No data")))
+                .onErrorResume(err -> {
+                    if (err instanceof TimeoutException) {
+                        return Mono.just(Section.<T>failed(DashboardResponse.TIMEOUT, "Deadline exceeded"));
+                    }
+                    log.warn("Dashboard section {} failed for user {}: {}", name, userId, err.toString());
+                    String reason = err instanceof ResponseStatusException rse ? rse.getReason() : "Unavailable";
+                    return Mono.just(Section.<T>failed(DashboardResponse.ERROR, reason));
+                })
+                .doOnNext(s -> meterRegistry.counter("dashboard.sections", "section", name, "status", s.status()).increment());
+    }
+}
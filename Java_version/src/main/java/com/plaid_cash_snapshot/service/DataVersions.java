@@ -0,0 +1,130 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.ConditionalGetProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Strong ETags for /summary and /recurring, derived from the data versions behind them
+ * (item cursors, balance refresh time, recurring stream and snapshot times) with one
+ * query on the primary, so a matching If-None-Match is answered before any Plaid call
+ * or detection runs.
+ *
+ * A version is only reusable while the stored data would be served as is: balances
+ * younger than app.conditional-get.summary-max-age, or a recurring snapshot that is
+ * still newer than the user's last sync/link.
+ */
+@Service
+@RequiredArgsConstructor
+@EnableConfigurationProperties(ConditionalGetProperties.class)
+public class DataVersions {
+
+    private final DatabaseClient db;
+    private final ConditionalGetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public record Version(String etag, boolean reusable) {
+
+        /** True when the client's copy is current and the stored data may be served without a refresh. */
+        public boolean notModified(String ifNoneMatch) {
+            return reusable && matches(ifNoneMatch, etag);
+        }
+    }
+
+    /** Outcome of serve: body is null when the client's copy is current. */
+    public record Conditional<T>(String etag, T body) {
+        public boolean notModified() {
+            return body == null;
+        }
+    }
+
+    public Mono<Version> summary(UUID userId) {
+        return db.sql("""
+                        WITH v AS (
+                          SELECT (SELECT string_agg(COALESCE(i.cursor, ''), ',' ORDER BY i.id)
+                                    FROM items i WHERE i.user_id = :uid) AS cursors,
+                                 (SELECT MAX(b.last_updated_datetime)
+                                    FROM account_balances b WHERE b.user_id = :uid) AS balances_at
+                        )
+                        SELECT md5(concat_ws('|', 's', cursors, balances_at)) AS etag,
+                               COALESCE(balances_at >= now() - make_interval(secs => :maxAge), false) AS reusable
+                          FROM v
+                        """)
+                .bind("uid", userId)
+                .bind("maxAge", properties.getSummaryMaxAge().toMillis() / 1000.0)
+                .map((row, meta) -> new Version(quote(row.get("etag", String.class)),
+                        Boolean.TRUE.equals(row.get("reusable", Boolean.class))))
+                .one();
+    }
+
+    public Mono<Version> recurring(UUID userId, String type) {
+        String direction = RecurringService.normalizeType(type);
+        return db.sql("""
+                        WITH v AS (
+                          SELECT (SELECT string_agg(COALESCE(i.cursor, ''), ',' ORDER BY i.id)
+                                    FROM items i WHERE i.user_id = :uid) AS cursors,
+                                 (SELECT MAX(i.updated_at)
+                                    FROM items i WHERE i.user_id = :uid) AS items_at,
+                                 (SELECT MAX(r.updated_at)
+                                    FROM recurring_transactions r
+                                   WHERE r.user_id = :uid AND r.direction = :dir) AS recurring_at,
+                                 (SELECT s.computed_at
+                                    FROM recurring_snapshots s
+                                   WHERE s.user_id = :uid AND s.direction = :dir) AS snapshot_at
+                        )
+                        SELECT md5(concat_ws('|', 'r', CAST(:dir AS text), cursors, recurring_at, snapshot_at)) AS etag,
+                               COALESCE(snapshot_at >= COALESCE(items_at, '-infinity'::timestamptz), false) AS reusable
+                          FROM v
+                        """)
+                .bind("uid", userId)
+                .bind("dir", direction)
+                .map((row, meta) -> new Version(quote(row.get("etag", String.class)),
+                        Boolean.TRUE.equals(row.get("reusable", Boolean.class))))
+                .one();
+    }
+
+    /**
+     * Answers with 304 when the client's copy is current; otherwise runs the request and
+     * tags the response with the version read before it. The body is at least as new as that
+     * version, so a later match never hides a write; if serving refreshes the data, the next
+     * request just sees a new ETag and gets one extra 200.
+     */
+    public <T> Mono<Conditional<T>> serve(String endpoint, Mono<Version> version, String ifNoneMatch, Mono<T> body) {
+        if (!properties.isEnabled()) return body.map(b -> new Conditional<>(null, b));
+        return version
+                .flatMap(before -> {
+                    if (ifNoneMatch != null && before.notModified(ifNoneMatch)) {
+                        count(endpoint, "not_modified");
+                        return Mono.just(new Conditional<T>(before.etag(), null));
+                    }
+                    count(endpoint, ifNoneMatch == null ? "unconditional" : "modified");
+                    return body.map(b -> new Conditional<>(before.etag(), b));
+                });
+    }
+
+    private void count(String endpoint, String result) {
+        meterRegistry.counter("http.conditional", "endpoint", endpoint, "result", result).increment();
+    }
+
+    private static String quote(String hash) {
+        return "\"" + hash + "\"";
+    }
+
+    // If-None-Match uses the weak comparison (RFC 9110 13.1.2): W/ prefixes are ignored
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+}
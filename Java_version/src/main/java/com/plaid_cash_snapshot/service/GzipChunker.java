@@ -0,0 +1,70 @@
+package com.plaid_cash_snapshot.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental gzip for streamed responses: input goes through the deflater as it
+ * arrives and compressed bytes are handed out in chunks of about chunkSize, so at most
+ * one chunk (plus the deflater's window) is held per stream. close() releases the
+ * native deflater and must run on cancel too; it may come from another thread while a
+ * write is in progress, so calls are serialized and anything after close() is a no-op.
+ */
+final class GzipChunker implements AutoCloseable {
+
+    private final int chunkSize;
+    private final ByteArrayOutputStream compressed;
+    private final GZIPOutputStream gzip;
+    private boolean closed;
+
+    GzipChunker(int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.compressed = new ByteArrayOutputStream(chunkSize + chunkSize / 4);
+        try {
+            this.gzip = new GZIPOutputStream(compressed, 8192);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Compresses {@code bytes}; returns a chunk once one is full, otherwise null. */
+    synchronized byte[] write(byte[] bytes) {
+        if (closed) return null;
+        try {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.size() >= chunkSize ? drain() : null;
+    }
+
+    /** Flushes the deflater and writes the gzip trailer; returns the remaining bytes. */
+    synchronized byte[] finish() {
+        if (closed) return new byte[0];
+        try {
+            gzip.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            gzip.close();
+        } catch (IOException ignored) {
+            // in-memory target; nothing left to report
+        }
+    }
+
+    private byte[] drain() {
+        byte[] out = compressed.toByteArray();
+        compressed.reset();
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+package com.plaid_cash_snapshot.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Immutable consistent-hash ring of node ids. Each node is placed at
+ * {@code virtualNodes} points; a key belongs to the first node clockwise from its
+ * hash, so adding or removing a node only moves that node's share of keys.
+ * The hash is a fixed function of the bytes, so every replica builds the same ring.
+ */
+final class HashRing {
+
+    static final HashRing EMPTY = new HashRing(new TreeMap<>());
+
+    private final TreeMap<Long, String> points;
+
+    private HashRing(TreeMap<Long, String> points) {
+        this.points = points;
+    }
+
+    static HashRing of(Collection<String> nodeIds, int virtualNodes) {
+        TreeMap<Long, String> points = new TreeMap<>();
+        for (String node : nodeIds) {
+            for (int v = 0; v < virtualNodes; v++) {
+                // on the (very unlikely) collision keep the smaller id so all replicas agree
+                points.merge(hash(node + "#" + v), node, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+        return new HashRing(points);
+    }
+
+    /** Owning node of {@code key}, or null when the ring is empty. */
+    String nodeFor(UUID key) {
+        if (points.isEmpty()) return null;
+        Map.Entry<Long, String> e = points.ceilingEntry(hash(key.toString()));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+
+    boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    /** FNV-1a 64 over UTF-8 bytes, finished with the murmur3 fmix64 avalanche. */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,190 @@
+package com.plaid_cash_snapshot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.plaid_cash_snapshot.config.InstitutionCacheProperties;
+import com.plaid_cash_snapshot.config.PlaidClientMetrics;
+import com.plaid_cash_snapshot.config.PlaidProperties;
+import com.plaid_cash_snapshot.plaid.dto.PlaidInstitutionResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Institution metadata (institution_id -> name), shared across users.
+ * Memory (Caffeine, refresh-after-write in the background) -> institutions table -> Plaid.
+ * The table keeps the cache warm across restarts and can be seeded from a local JSON file.
+ */
+@Service
+@Slf4j
+@EnableConfigurationProperties(InstitutionCacheProperties.class)
+public class InstitutionService {
+
+    private final DatabaseClient db;
+    private final PlaidProperties plaidProps;
+    private final InstitutionCacheProperties props;
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final PlaidClientMetrics plaidClientMetrics;
+    private final AsyncLoadingCache<String, PlaidInstitutionResponse.Institution> cache;
+
+    @Value("${plaid.base-url:https://sandbox.plaid.com}")
+    private String plaidBaseUrl;
+
+    @Value("${plaid.client-id}")
+    private String plaidClientId;
+
+    @Value("${plaid.secret}")
+    private String plaidSecret;
+
+    public InstitutionService(DatabaseClient db,
+                              PlaidProperties plaidProps,
+                              InstitutionCacheProperties props,
+                              ObjectMapper objectMapper,
+                              ResourceLoader resourceLoader,
+                              PlaidClientMetrics plaidClientMetrics,
+                              MeterRegistry meterRegistry) {
+        this.db = db;
+        this.plaidProps = plaidProps;
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.plaidClientMetrics = plaidClientMetrics;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.getMaxSize())
+                .refreshAfterWrite(props.getRefreshAfter())
+                .expireAfterWrite(props.getTtl())
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<PlaidInstitutionResponse.Institution> asyncLoad(String id, Executor executor) {
+                        return load(id).toFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<PlaidInstitutionResponse.Institution> asyncReload(
+                            String id, PlaidInstitutionResponse.Institution old, Executor executor) {
+                        // background refresh: keep serving the old value if Plaid is unavailable
+                        return fetchAndStore(id)
+                                .onErrorResume(err -> {
+                                    log.warn("Institution refresh failed for {}: {}", id, err.toString());
+                                    return Mono.just(old);
+                                })
+                                .toFuture();
+                    }
+                });
+        new CaffeineCacheMetrics<>(cache.synchronous(), "plaid.institutions", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    private WebClient client() {
+        return WebClient.builder()
+                .baseUrl(plaidBaseUrl)
+                .filter(plaidClientMetrics)
+                .build();
+    }
+
+    public Mono<PlaidInstitutionResponse.Institution> get(String institutionId) {
+        return Mono.fromFuture(() -> cache.get(institutionId), true);
+    }
+
+    // table first (fresh rows only); Plaid on miss, falling back to a stale row if Plaid fails
+    private Mono<PlaidInstitutionResponse.Institution> load(String id) {
+        return db.sql("SELECT institution_id, name, fetched_at FROM institutions WHERE institution_id = :id")
+                .bind("id", id)
+                .map((row, meta) -> new StoredInstitution(
+                        new PlaidInstitutionResponse.Institution(row.get("institution_id", String.class), row.get("name", String.class)),
+                        row.get("fetched_at", OffsetDateTime.class)))
+                .one()
+                .flatMap(stored -> {
+                    if (stored.fetchedAt() != null && stored.fetchedAt().isAfter(OffsetDateTime.now(ZoneOffset.UTC).minus(props.getTtl()))) {
+                        return Mono.just(stored.institution());
+                    }
+                    return fetchAndStore(id).onErrorReturn(stored.institution());
+                })
+                .switchIfEmpty(Mono.defer(() -> fetchAndStore(id)));
+    }
+
+    private Mono<PlaidInstitutionResponse.Institution> fetchAndStore(String id) {
+        return client().post()
+                .uri("/institutions/get_by_id")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "institution_id", id,
+                        "country_codes", plaidProps.getCountryCodes(),
+                        "client_id", plaidClientId,
+                        "secret", plaidSecret
+                ))
+                .retrieve()
+                .bodyToMono(PlaidInstitutionResponse.class)
+                .map(PlaidInstitutionResponse::institution)
+                .flatMap(inst -> upsert(inst, true).thenReturn(inst));
+    }
+
+    private Mono<Long> upsert(PlaidInstitutionResponse.Institution inst, boolean overwrite) {
+        String onConflict = overwrite
+                ? "DO UPDATE SET name = EXCLUDED.name, fetched_at = EXCLUDED.fetched_at"
+                : "DO NOTHING";
+        return db.sql("""
+                        INSERT INTO institutions (institution_id, name, fetched_at)
+                        VALUES (:id, :name, now())
+                        ON CONFLICT (institution_id) %s
+                        """.formatted(onConflict))
+                .bind("id", inst.institutionId())
+                .bind("name", inst.name())
+                .fetch().rowsUpdated();
+    }
+
+    /** Prewarm: seed file into the table (without overwriting fetched rows), then the table into memory. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        Flux.fromIterable(readSeed())
+                .concatMap(inst -> upsert(inst, false))
+                .thenMany(db.sql("SELECT institution_id, name FROM institutions ORDER BY fetched_at DESC LIMIT :max")
+                        .bind("max", props.getMaxSize())
+                        .map((row, meta) -> new PlaidInstitutionResponse.Institution(
+                                row.get("institution_id", String.class), row.get("name", String.class)))
+                        .all())
+                .doOnNext(inst -> cache.put(inst.institutionId(), CompletableFuture.completedFuture(inst)))
+                .count()
+                .subscribe(
+                        n -> log.info("Institution cache prewarmed with {} entries", n),
+                        err -> log.warn("Institution cache prewarm failed: {}", err.toString()));
+    }
+
+    private List<PlaidInstitutionResponse.Institution> readSeed() {
+        Resource resource = resourceLoader.getResource(props.getSeedFile());
+        if (!resource.exists()) return List.of();
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, new TypeReference<List<PlaidInstitutionResponse.Institution>>() {});
+        } catch (Exception e) {
+            log.warn("Could not read institution seed file {}: {}", props.getSeedFile(), e.toString());
+            return List.of();
+        }
+    }
+
+    private record StoredInstitution(PlaidInstitutionResponse.Institution institution, OffsetDateTime fetchedAt) {}
+}
@@ -1,26 +1,32 @@
 package com.plaid_cash_snapshot.service;
 
+import com.plaid_cash_snapshot.config.PlaidClientMetrics;
+import com.plaid_cash_snapshot.config.Spans;
 import com.plaid_cash_snapshot.dto.ExchangeRequest;
 import com.plaid_cash_snapshot.dto.ExchangeResponse;
-import com.plaid_cash_snapshot.model.Account;
 import com.plaid_cash_snapshot.model.Item;
 import com.plaid_cash_snapshot.plaid.dto.PlaidAccountsResponse;
 import com.plaid_cash_snapshot.plaid.dto.PlaidExchangeResponse;
 import com.plaid_cash_snapshot.plaid.dto.PlaidInstitutionResponse;
-import com.plaid_cash_snapshot.repository.AccountRepository;
 import com.plaid_cash_snapshot.repository.ItemRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -28,8 +34,17 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ItemLinkService {
 
+    private static final String UNKNOWN_INSTITUTION = "Unknown Institution";
+
     private final ItemRepository itemRepository;
-    private final AccountRepository accountRepository;
+    private final AccountDirectory accountDirectory;
+    private final DatabaseClient db;
+    private final InstitutionService institutionService;
+    private final JobQueue jobQueue;
+    private final ReadRouting readRouting;
+    private final MeterRegistry meterRegistry;
+    private final PlaidClientMetrics plaidClientMetrics;
+    private final Spans spans;
 
     @Value("${plaid.base-url:https://sandbox.plaid.com}")
     private String plaidBaseUrl;
@@ -43,14 +58,25 @@ public class ItemLinkService {
     private WebClient client() {
         return WebClient.builder()
                 .baseUrl(plaidBaseUrl)
+                .filter(plaidClientMetrics)
                 .build();
     }
 
+    /**
+     * Link flow as a small dependency graph; every Plaid call is subscribed exactly once:
+     *
+     *   exchange ──┬── accounts ─────────────────────┐
+     *              └── item ── institution (cached) ─┴── persist ── enqueue backfill
+     *
+     * accounts and item/institution run concurrently. Per-stage latency is recorded
+     * in plaid.link.stage{stage, outcome}. The historical transaction download runs
+     * later as an item_backfill job; its id is returned so clients can poll progress.
+     */
     public Mono<ExchangeResponse> exchangeAndSave(ExchangeRequest req) {
         WebClient http = client();
 
         // 1) exchange public_token -> access_token, item_id
-        Mono<PlaidExchangeResponse> exchangeMono = http.post()
+        Mono<PlaidExchangeResponse> exchangeMono = timed("exchange", http.post()
                 .uri("/item/public_token/exchange")
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(Map.of(
@@ -59,14 +85,14 @@ public class ItemLinkService {
                         "secret", plaidSecret
                 ))
                 .retrieve()
-                .bodyToMono(PlaidExchangeResponse.class);
+                .bodyToMono(PlaidExchangeResponse.class));
 
         return exchangeMono.flatMap(ex -> {
             String accessToken = ex.accessToken();
             String plaidItemId = ex.itemId();
 
             // 2) get accounts list
-            Mono<PlaidAccountsResponse> accountsMono = http.post()
+            Mono<PlaidAccountsResponse> accountsMono = timed("accounts", http.post()
                     .uri("/accounts/get")
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(Map.of(
@@ -75,10 +101,10 @@ public class ItemLinkService {
                             "secret", plaidSecret
                     ))
                     .retrieve()
-                    .bodyToMono(PlaidAccountsResponse.class);
+                    .bodyToMono(PlaidAccountsResponse.class));
 
-            // 3) get institution_id via /item/get
-            Mono<String> institutionIdMono = http.post()
+            // 3) get institution_id via /item/get (empty when the item has none)
+            Mono<String> institutionIdMono = timed("item", http.post()
                     .uri("/item/get")
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(Map.of(
@@ -88,40 +114,29 @@ public class ItemLinkService {
                     ))
                     .retrieve()
                     .bodyToMono(Map.class)
-                    .map(map -> {
+                    .mapNotNull(map -> {
                         Object item = map.get("item");
                         if (item instanceof Map<?, ?> m) {
                             Object instId = m.get("institution_id");
-                            return instId == null ? null : instId.toString();
+                            return instId == null || instId.toString().isBlank() ? null : instId.toString();
                         }
                         return null;
-                    });
-
-            // 4) fetch institution name via /institutions/get_by_id
-            Mono<PlaidInstitutionResponse.Institution> institutionMono = institutionIdMono.flatMap(instId -> {
-                if (instId == null || instId.isBlank()) {
-                    return Mono.just(new PlaidInstitutionResponse.Institution(null, "Unknown Institution"));
-                }
-                return http.post()
-                        .uri("/institutions/get_by_id")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(Map.of(
-                                "institution_id", instId,
-                                "country_codes", new String[]{"US"},
-                                "client_id", plaidClientId,
-                                "secret", plaidSecret
-                        ))
-                        .retrieve()
-                        .bodyToMono(PlaidInstitutionResponse.class)
-                        .map(PlaidInstitutionResponse::institution);
-            });
+                    }));
+
+            // 4) institution name from the shared institution cache (Plaid only on a cold miss),
+            //    chained on (not re-subscribing) step 3
+            Mono<LinkedInstitution> institutionMono = institutionIdMono
+                    .flatMap(instId -> timed("institution", institutionService.get(instId))
+                            .map(inst -> new LinkedInstitution(instId, inst)))
+                    .defaultIfEmpty(new LinkedInstitution(null,
+                            new PlaidInstitutionResponse.Institution(null, UNKNOWN_INSTITUTION)));
 
             // 5) upsert item and accounts
-            return Mono.zip(accountsMono, institutionIdMono, institutionMono)
-                    .flatMap(tuple -> {
+            return Mono.zip(accountsMono, institutionMono)
+                    .flatMap(tuple -> timed("persist", Mono.defer(() -> {
                         PlaidAccountsResponse accountsRes = tuple.getT1();
-                        String institutionId = tuple.getT2();
-                        PlaidInstitutionResponse.Institution institution = tuple.getT3();
+                        String institutionId = tuple.getT2().institutionId();
+                        PlaidInstitutionResponse.Institution institution = tuple.getT2().institution();
 
                         OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
 
@@ -143,38 +158,102 @@ public class ItemLinkService {
 
                                     return itemRepository.save(toSave);
                                 })
-                                .flatMap(savedItem -> {
-                                    UUID savedItemId = savedItem.getId();
-
-                                    // upsert Accounts by (item_id, account_id)
-                                    return Flux.fromIterable(accountsRes.accounts())
-                                            .flatMap(acc -> accountRepository.findByItemIdAndAccountId(savedItemId, acc.accountId())
-                                                    .defaultIfEmpty(Account.builder()
-                                                            .userId(req.userId())
-                                                            .itemId(savedItemId)
-                                                            .accountId(acc.accountId())
-                                                            .createdAt(now)
-                                                            .build())
-                                                    .flatMap(existingOrNewAcc -> {
-                                                        Account toSaveAcc = existingOrNewAcc.toBuilder()
-                                                                .name(acc.name())
-                                                                .officialName(acc.officialName())
-                                                                .type(acc.type())
-                                                                .subtype(acc.subtype())
-                                                                .mask(acc.mask())
-                                                                .updatedAt(now)
-                                                                .build();
-                                                        return accountRepository.save(toSaveAcc);
-                                                    })
-                                            )
-                                            .then(Mono.just(new ExchangeResponse(
-                                                    plaidItemId,
-                                                    accountsRes.accounts() != null ? accountsRes.accounts().size() : 0,
-                                                    institution != null ? institution.name() : "Unknown Institution",
-                                                    "Account successfully linked"
-                                            )));
-                                });
-                    });
+                                .flatMap(savedItem -> upsertAccounts(req.userId(), savedItem.getId(), accountsRes.accounts(), now)
+                                        .doOnNext(ids -> accountDirectory.put(savedItem.getId(), ids))
+                                        .flatMap(ids -> readRouting.markWritten(req.userId()))
+                                        .then(enqueueBackfill(req.userId(), savedItem.getId())))
+                                        .map(jobId -> new ExchangeResponse(
+                                                plaidItemId,
+                                                accountsRes.accounts() != null ? accountsRes.accounts().size() : 0,
+                                                institution != null ? institution.name() : UNKNOWN_INSTITUTION,
+                                                "Account successfully linked",
+                                                jobId.orElse(null)
+                                        ));
+                    })));
         });
     }
+
+    /**
+     * Upserts all of an item's accounts in one statement on the accounts.account_id unique key
+     * and returns Plaid account_id -> accounts.id for every row written.
+     */
+    private Mono<Map<String, UUID>> upsertAccounts(UUID userId, UUID itemId,
+                                                   List<PlaidAccountsResponse.Account> accounts,
+                                                   OffsetDateTime now) {
+        if (accounts == null || accounts.isEmpty()) return Mono.just(Map.of());
+
+        int n = accounts.size();
+        String[] accountIds = new String[n];
+        String[] names = new String[n];
+        String[] officialNames = new String[n];
+        String[] types = new String[n];
+        String[] subtypes = new String[n];
+        String[] masks = new String[n];
+        for (int i = 0; i < n; i++) {
+            PlaidAccountsResponse.Account acc = accounts.get(i);
+            accountIds[i] = acc.accountId();
+            names[i] = acc.name();
+            officialNames[i] = acc.officialName();
+            types[i] = acc.type();
+            subtypes[i] = acc.subtype();
+            masks[i] = acc.mask();
+        }
+
+        return db.sql("""
+                        INSERT INTO accounts
+                          (user_id, item_id, account_id, name, official_name, type, subtype, mask, created_at, updated_at)
+                        SELECT :userId, :itemId, a.account_id, a.name, a.official_name, a.type, a.subtype, a.mask, :now, :now
+                          FROM unnest(CAST(:accountIds AS text[]), CAST(:names AS text[]), CAST(:officialNames AS text[]),
+                                      CAST(:types AS text[]), CAST(:subtypes AS text[]), CAST(:masks AS text[]))
+                               AS a(account_id, name, official_name, type, subtype, mask)
+                        ON CONFLICT (account_id)
+                        DO UPDATE SET
+                            user_id       = EXCLUDED.user_id,
+                            item_id       = EXCLUDED.item_id,
+                            name          = EXCLUDED.name,
+                            official_name = EXCLUDED.official_name,
+                            type          = EXCLUDED.type,
+                            subtype       = EXCLUDED.subtype,
+                            mask          = EXCLUDED.mask,
+                            updated_at    = EXCLUDED.updated_at
+                        RETURNING id, account_id
+                        """)
+                .bind("userId", userId)
+                .bind("itemId", itemId)
+                .bind("now", now)
+                .bind("accountIds", accountIds)
+                .bind("names", names)
+                .bind("officialNames", officialNames)
+                .bind("types", types)
+                .bind("subtypes", subtypes)
+                .bind("masks", masks)
+                .map((row, meta) -> Map.entry(row.get("account_id", String.class), row.get("id", UUID.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * The link itself has succeeded at this point; if the job cannot be queued the
+     * first /sync still downloads history, so log and return no job id.
+     */
+    private Mono<Optional<UUID>> enqueueBackfill(UUID userId, UUID itemId) {
+        return jobQueue.enqueueItemBackfill(userId, itemId)
+                .map(Optional::of)
+                .onErrorResume(err -> {
+                    log.warn("Could not enqueue backfill for item {}: {}", itemId, err.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private record LinkedInstitution(String institutionId, PlaidInstitutionResponse.Institution institution) {}
+
+    // plaid.link.stage{stage, outcome}, inside a link.<stage> span
+    private <T> Mono<T> timed(String stage, Mono<T> mono) {
+        return spans.mono("link." + stage, Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doFinally(sig -> sample.stop(meterRegistry.timer("plaid.link.stage",
+                    "stage", stage,
+                    "outcome", sig == SignalType.ON_COMPLETE ? "success" : sig.name().toLowerCase(Locale.ROOT))));
+        }));
+    }
 }
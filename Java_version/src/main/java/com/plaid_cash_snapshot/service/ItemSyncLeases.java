@@ -0,0 +1,114 @@
+package com.plaid_cash_snapshot.service;
+
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.R2dbcType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Expiring per-item sync leases in item_sync_leases. A lease can only be taken when
+ * free or expired; each takeover bumps the fencing token, and writes that must not
+ * come from a stale holder (the item cursor) check owner + token in the same statement.
+ * A table is used rather than pg advisory locks because those are tied to a session,
+ * and pooled R2DBC connections are not held for the length of a sync.
+ */
+@Service
+@RequiredArgsConstructor
+public class ItemSyncLeases {
+
+    // lease traffic belongs to syncs, which write on the bulk pool
+    @Qualifier("bulkDatabaseClient")
+    private final DatabaseClient db;
+    private final NodeIdentity node;
+
+    @Value("${app.sync.lease-ttl:2m}")
+    private Duration ttl;
+
+    public record Lease(UUID itemId, String owner, long fencingToken) {}
+
+    public static class LeaseLostException extends IllegalStateException {
+        public LeaseLostException(UUID itemId) {
+            super("Sync lease lost for item " + itemId);
+        }
+    }
+
+    /** Empty when another holder has an unexpired lease on the item. */
+    public Mono<Lease> tryAcquire(UUID itemId) {
+        String owner = node.id();
+        return db.sql("""
+                        INSERT INTO item_sync_leases (item_id, owner, fencing_token, acquired_at, expires_at)
+                        VALUES (:itemId, :owner, 1, now(), now() + make_interval(secs => :ttlSeconds))
+                        ON CONFLICT (item_id) DO UPDATE
+                           SET owner = EXCLUDED.owner,
+                               fencing_token = item_sync_leases.fencing_token + 1,
+                               acquired_at = EXCLUDED.acquired_at,
+                               expires_at = EXCLUDED.expires_at
+                         WHERE item_sync_leases.expires_at < now()
+                        RETURNING fencing_token
+                        """)
+                .bind("itemId", itemId)
+                .bind("owner", owner)
+                .bind("ttlSeconds", ttlSeconds())
+                .map((row, meta) -> new Lease(itemId, owner, row.get("fencing_token", Long.class)))
+                .one();
+    }
+
+    /** Extends the lease; errors with {@link LeaseLostException} if it was taken over. */
+    public Mono<Void> renew(Lease lease) {
+        return db.sql("""
+                        UPDATE item_sync_leases SET expires_at = now() + make_interval(secs => :ttlSeconds)
+                         WHERE item_id = :itemId AND owner = :owner AND fencing_token = :token AND expires_at > now()
+                        """)
+                .bind("ttlSeconds", ttlSeconds())
+                .bind("itemId", lease.itemId())
+                .bind("owner", lease.owner())
+                .bind("token", lease.fencingToken())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(n -> n > 0 ? Mono.<Void>empty() : Mono.error(new LeaseLostException(lease.itemId())));
+    }
+
+    /** Writes the item cursor only while {@code lease} is still current. */
+    public Mono<Void> saveCursorFenced(Lease lease, String cursor, OffsetDateTime now) {
+        return db.sql("""
+                        UPDATE items SET cursor = :cursor, updated_at = :now
+                         WHERE id = :itemId
+                           AND EXISTS (SELECT 1 FROM item_sync_leases l
+                                        WHERE l.item_id = :itemId AND l.owner = :owner
+                                          AND l.fencing_token = :token AND l.expires_at > now())
+                        """)
+                .bind("now", now)
+                .bind("itemId", lease.itemId())
+                .bind("owner", lease.owner())
+                .bind("token", lease.fencingToken())
+                .bind("cursor", Parameters.in(R2dbcType.VARCHAR, cursor))
+                .fetch()
+                .rowsUpdated()
+                .flatMap(n -> n > 0 ? Mono.<Void>empty() : Mono.error(new LeaseLostException(lease.itemId())));
+    }
+
+    /** Expires the lease now (the row stays so the next token is still higher). */
+    public Mono<Void> release(Lease lease) {
+        return db.sql("""
+                        UPDATE item_sync_leases SET expires_at = now()
+                         WHERE item_id = :itemId AND owner = :owner AND fencing_token = :token
+                        """)
+                .bind("itemId", lease.itemId())
+                .bind("owner", lease.owner())
+                .bind("token", lease.fencingToken())
+                .then();
+    }
+
+    // expiry uses the database clock so nodes with skewed clocks agree on it
+    private double ttlSeconds() {
+        return ttl.toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,163 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.JobProperties;
+import com.plaid_cash_snapshot.model.Job;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable job queue on the jobs table. Workers on any node claim due jobs with
+ * FOR UPDATE SKIP LOCKED, so a job runs on one node at a time; failed jobs are
+ * re-queued with exponential backoff until max_attempts, and jobs whose worker
+ * died are re-queued once their lock goes stale.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@EnableConfigurationProperties(JobProperties.class)
+public class JobQueue {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final DatabaseClient db; // enqueue, from the link request
+
+    // claims, heartbeats and outcomes come from the background workers
+    @Qualifier("bulkDatabaseClient")
+    private final DatabaseClient bulkDb;
+    private final NodeIdentity node;
+    private final JobProperties props;
+
+    /**
+     * Queues a backfill for the item. If one is already queued or running for it,
+     * that job's id is returned instead of creating a second one.
+     */
+    public Mono<UUID> enqueueItemBackfill(UUID userId, UUID itemId) {
+        return db.sql("""
+                        INSERT INTO jobs (job_type, user_id, item_id, max_attempts)
+                        VALUES (:type, :userId, :itemId, :maxAttempts)
+                        ON CONFLICT (job_type, item_id) WHERE status IN ('queued', 'running')
+                        DO UPDATE SET updated_at = now()
+                        RETURNING id
+                        """)
+                .bind("type", Job.TYPE_ITEM_BACKFILL)
+                .bind("userId", userId)
+                .bind("itemId", itemId)
+                .bind("maxAttempts", props.getMaxAttempts())
+                .map((row, meta) -> row.get("id", UUID.class))
+                .one();
+    }
+
+    /** Claims up to {@code limit} due jobs for this node. */
+    public Flux<Job> claim(int limit) {
+        return bulkDb.sql("""
+                        UPDATE jobs j
+                           SET status = 'running', locked_by = :node, locked_at = now(), attempts = j.attempts + 1
+                         WHERE j.id IN (SELECT id FROM jobs
+                                         WHERE status = 'queued' AND run_at <= now()
+                                         ORDER BY run_at
+                                         LIMIT :limit
+                                         FOR UPDATE SKIP LOCKED)
+                        RETURNING j.id, j.job_type, j.user_id, j.item_id, j.attempts, j.max_attempts, j.progress
+                        """)
+                .bind("node", node.id())
+                .bind("limit", limit)
+                .map((row, meta) -> toJob(row))
+                .all();
+    }
+
+    /** Records progress; doubles as the worker's heartbeat for stale-lock detection. */
+    public Mono<Void> progress(UUID jobId, int progress) {
+        return bulkDb.sql("UPDATE jobs SET progress = :progress, locked_at = now() WHERE id = :id AND locked_by = :node")
+                .bind("progress", progress)
+                .bind("id", jobId)
+                .bind("node", node.id())
+                .then();
+    }
+
+    public Mono<Void> complete(UUID jobId) {
+        return bulkDb.sql("""
+                        UPDATE jobs
+                           SET status = 'succeeded', finished_at = now(), locked_by = NULL, locked_at = NULL, last_error = NULL
+                         WHERE id = :id AND locked_by = :node
+                        """)
+                .bind("id", jobId)
+                .bind("node", node.id())
+                .then();
+    }
+
+    /** Re-queues with backoff, or marks failed once attempts are exhausted. */
+    public Mono<Void> fail(Job job, Throwable error) {
+        boolean exhausted = job.getAttempts() >= job.getMaxAttempts();
+        return bulkDb.sql("""
+                        UPDATE jobs
+                           SET status = :status,
+                               run_at = now() + make_interval(secs => :delaySeconds),
+                               finished_at = CASE WHEN :exhausted THEN now() END,
+                               last_error = :error, locked_by = NULL, locked_at = NULL
+                         WHERE id = :id AND locked_by = :node
+                        """)
+                .bind("status", exhausted ? "failed" : "queued")
+                .bind("delaySeconds", (double) backoff(job.getAttempts()).toMillis() / 1000.0)
+                .bind("exhausted", exhausted)
+                .bind("error", truncate(String.valueOf(error)))
+                .bind("id", job.getId())
+                .bind("node", node.id())
+                .then();
+    }
+
+    /**
+     * Re-queues running jobs whose worker has not reported progress within {@code lockTimeout};
+     * a stale job that was on its last attempt is marked failed instead, as fail() would.
+     */
+    public Mono<Long> reclaimStale(Duration lockTimeout) {
+        return bulkDb.sql("""
+                        UPDATE jobs
+                           SET status = CASE WHEN attempts >= max_attempts THEN 'failed' ELSE 'queued' END,
+                               finished_at = CASE WHEN attempts >= max_attempts THEN now() END,
+                               last_error = CASE WHEN attempts >= max_attempts
+                                                 THEN 'Worker stopped reporting progress on the last attempt'
+                                                 ELSE last_error END,
+                               locked_by = NULL, locked_at = NULL, run_at = now()
+                         WHERE status = 'running' AND locked_at < now() - make_interval(secs => :timeoutSeconds)
+                        """)
+                // locked_at is the database's now(), so the cutoff is too: app clock skew must not reclaim live jobs
+                .bind("timeoutSeconds", lockTimeout.toMillis() / 1000.0)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /** base * 2^(attempt-1), capped, with up to 20% jitter so retries of a Plaid outage spread out. */
+    Duration backoff(int attempt) {
+        long base = props.getBackoffBase().toMillis();
+        long capped = Math.min(props.getBackoffMax().toMillis(), base << Math.min(Math.max(attempt - 1, 0), 20));
+        return Duration.ofMillis(capped + ThreadLocalRandom.current().nextLong(capped / 5 + 1));
+    }
+
+    private static Job toJob(Row row) {
+        return Job.builder()
+                .id(row.get("id", UUID.class))
+                .jobType(row.get("job_type", String.class))
+                .userId(row.get("user_id", UUID.class))
+                .itemId(row.get("item_id", UUID.class))
+                .status("running")
+                .attempts(row.get("attempts", Integer.class))
+                .maxAttempts(row.get("max_attempts", Integer.class))
+                .progress(row.get("progress", Integer.class))
+                .build();
+    }
+
+    private static String truncate(String s) {
+        return s.length() <= MAX_ERROR_LENGTH ? s : s.substring(0, MAX_ERROR_LENGTH);
+    }
+}
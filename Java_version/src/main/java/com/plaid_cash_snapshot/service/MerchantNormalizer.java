@@ -0,0 +1,71 @@
+package com.plaid_cash_snapshot.service;
+
+/**
+ * Char-loop merchant name normalizer.
+ * Produces exactly what the old regex chain did:
+ *   s.trim().toLowerCase(ROOT).replaceAll("\\s+", " ").replaceAll("[^a-z0-9\\s]", "")
+ * but in one pass, without compiling patterns, and without allocating when the
+ * input is already normalized.
+ */
+public final class MerchantNormalizer {
+
+    private MerchantNormalizer() {}
+
+    public static String normalize(String s) {
+        if (s == null) return null;
+
+        // String.trim() semantics: strip chars <= ' ' at both ends
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+
+        char[] out = null; // allocated lazily on the first char that differs from the input
+        int len = 0;
+        boolean prevWs = false;
+
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            char emit;
+            if (isRegexWhitespace(c)) {
+                // \s+ collapses to a single space; the run is measured on the input, not the output
+                if (prevWs) {
+                    if (out == null) out = copyPrefix(s, start, len);
+                    continue;
+                }
+                prevWs = true;
+                emit = ' ';
+            } else {
+                prevWs = false;
+                char lc = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : (c < 128 ? c : Character.toLowerCase(c));
+                if ((lc >= 'a' && lc <= 'z') || (lc >= '0' && lc <= '9')) {
+                    emit = lc;
+                } else {
+                    if (out == null) out = copyPrefix(s, start, len);
+                    continue;
+                }
+            }
+
+            if (out == null && emit != c) out = copyPrefix(s, start, len);
+            if (out != null) out[len] = emit;
+            len++;
+        }
+
+        if (out == null) {
+            // nothing changed inside the trimmed range
+            return (start == 0 && end == s.length()) ? s : s.substring(start, end);
+        }
+        return new String(out, 0, len);
+    }
+
+    /** Java regex {@code \s}: [ \t\n\x0B\f\r] */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static char[] copyPrefix(String s, int start, int len) {
+        char[] out = new char[s.length() - start];
+        s.getChars(start, start + len, out, 0);
+        return out;
+    }
+}
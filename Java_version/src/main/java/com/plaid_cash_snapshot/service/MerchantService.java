@@ -0,0 +1,113 @@
+package com.plaid_cash_snapshot.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merchant dictionary: normalized merchant name -> merchants.id.
+ * Names are normalized once at ingest so the recurring detector can group on ints.
+ */
+@Service
+@RequiredArgsConstructor
+public class MerchantService {
+
+    private final DatabaseClient db;
+
+    // dictionary inserts run inside syncs, with the rest of their writes
+    @Qualifier("bulkDatabaseClient")
+    private final DatabaseClient bulkDb;
+
+    // merchants rows are never deleted or renamed, so ids can be cached for the life of the process
+    private final Map<String, Integer> idsByNormalizedName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> displayNamesById = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves (creating when missing) merchant ids for a batch of raw merchant names.
+     * The returned map is keyed by the raw name as given; blank/null names are left out.
+     */
+    public Mono<Map<String, Integer>> resolveIds(Collection<String> rawNames) {
+        Map<String, String> normByRaw = new HashMap<>();
+        Map<String, String> displayByNorm = new LinkedHashMap<>();
+        for (String raw : rawNames) {
+            if (raw == null || raw.isBlank() || normByRaw.containsKey(raw)) continue;
+            String norm = MerchantNormalizer.normalize(raw);
+            if (norm.isEmpty()) continue;
+            normByRaw.put(raw, norm);
+            if (!idsByNormalizedName.containsKey(norm)) displayByNorm.putIfAbsent(norm, raw.trim());
+        }
+
+        return Flux.fromIterable(displayByNorm.entrySet())
+                .concatMap(e -> upsert(e.getKey(), e.getValue())
+                        .doOnNext(id -> idsByNormalizedName.put(e.getKey(), id)))
+                .then(Mono.fromSupplier(() -> {
+                    Map<String, Integer> out = new HashMap<>();
+                    normByRaw.forEach((raw, norm) -> {
+                        Integer id = idsByNormalizedName.get(norm);
+                        if (id != null) out.put(raw, id);
+                    });
+                    return out;
+                }));
+    }
+
+    /** Id for an already-normalized name if this process has seen it, without touching the database. */
+    public Integer cachedId(String normalizedName) {
+        return normalizedName == null ? null : idsByNormalizedName.get(normalizedName);
+    }
+
+    /** Display names for merchant ids; served from memory once loaded. */
+    public Mono<Map<Integer, String>> displayNames(Collection<Integer> ids) {
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!displayNamesById.containsKey(id)) missing.add(id);
+        }
+
+        Mono<Void> load = missing.isEmpty()
+                ? Mono.empty()
+                : db.sql("SELECT id, display_name, normalized_name FROM merchants WHERE id = ANY(:ids)")
+                        .bind("ids", missing.toArray(new Integer[0]))
+                        .map((row, meta) -> {
+                            String display = row.get("display_name", String.class);
+                            String name = display != null ? display : row.get("normalized_name", String.class);
+                            displayNamesById.put(row.get("id", Integer.class), name);
+                            return name;
+                        })
+                        .all()
+                        .then();
+
+        return load.then(Mono.fromSupplier(() -> {
+            Map<Integer, String> out = new HashMap<>();
+            for (Integer id : ids) {
+                String name = displayNamesById.get(id);
+                if (name != null) out.put(id, name);
+            }
+            return out;
+        }));
+    }
+
+    private Mono<Integer> upsert(String normalizedName, String displayName) {
+        // DO UPDATE (no-op) so RETURNING yields the id for rows that already exist
+        return bulkDb.sql("""
+                        INSERT INTO merchants (normalized_name, display_name)
+                        VALUES (:norm, :display)
+                        ON CONFLICT (normalized_name)
+                        DO UPDATE SET normalized_name = EXCLUDED.normalized_name
+                        RETURNING id
+                        """)
+                .bind("norm", normalizedName)
+                .bind("display", displayName)
+                .map((row, meta) -> row.get("id", Integer.class))
+                .one();
+    }
+}
@@ -0,0 +1,30 @@
+package com.plaid_cash_snapshot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/** Stable id of this application instance, used to tag job claims and leases. */
+@Component
+public class NodeIdentity {
+
+    private final String id;
+
+    public NodeIdentity(@Value("${app.node-id:}") String configured) {
+        this.id = configured.isBlank() ? hostname() + "-" + UUID.randomUUID().toString().substring(0, 8) : configured;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
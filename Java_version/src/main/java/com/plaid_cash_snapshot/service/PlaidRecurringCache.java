@@ -0,0 +1,60 @@
+package com.plaid_cash_snapshot.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.plaid_cash_snapshot.dto.RecurringResponse;
+import com.plaid_cash_snapshot.model.Item;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Mapped /transactions/recurring/get results keyed by (item id, sync cursor).
+ * The cursor only moves when new transaction data was synced for the item, so an entry
+ * stays valid until then; TransactionSyncService evicts the item when it advances the cursor.
+ * Concurrent misses for the same key share one Plaid call. A load that fails is not kept,
+ * so callers decide about fallbacks outside the loader and the next miss asks Plaid again.
+ * Hit/miss/eviction stats are published as cache.* with cache=plaid.recurring.
+ */
+@Component
+public class PlaidRecurringCache {
+
+    private record Key(UUID itemId, String cursor) {}
+
+    /** Both directions come back from one Plaid call. */
+    public record Streams(List<RecurringResponse.Stream> inflow, List<RecurringResponse.Stream> outflow) {
+        public static final Streams EMPTY = new Streams(List.of(), List.of());
+
+        public List<RecurringResponse.Stream> forDirection(String direction) {
+            return "inflow".equals(direction) ? inflow : outflow;
+        }
+    }
+
+    private final AsyncCache<Key, Streams> cache;
+
+    public PlaidRecurringCache(@Value("${app.plaid.recurring-cache.max-size:10000}") long maxSize,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        new CaffeineCacheMetrics<>(cache.synchronous(), "plaid.recurring", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public Mono<Streams> get(Item item, Supplier<Mono<Streams>> loader) {
+        Key key = new Key(item.getId(), item.getCursor());
+        // suppressCancel: one caller going away must not cancel a load other callers are waiting on
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> loader.get().toFuture()), true);
+    }
+
+    public void invalidateItem(UUID itemId) {
+        cache.asMap().keySet().removeIf(k -> k.itemId().equals(itemId));
+    }
+}
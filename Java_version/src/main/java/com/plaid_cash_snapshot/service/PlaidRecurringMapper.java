@@ -0,0 +1,99 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.dto.RecurringResponse;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the untyped /transactions/recurring/get body (as decoded by WebClient into a Map)
+ * to response streams for one direction. Kept free of Spring so it can be benchmarked directly.
+ */
+final class PlaidRecurringMapper {
+
+    static final double PLAID_CONFIDENCE = 0.9;
+
+    private PlaidRecurringMapper() {}
+
+    static List<RecurringResponse.Stream> map(Map<?, ?> root, String direction) {
+        Object key = direction.equals("inflow") ? root.get("inflow_streams") : root.get("outflow_streams");
+        if (!(key instanceof List<?> raw)) return List.of();
+
+        List<RecurringResponse.Stream> out = new ArrayList<>();
+        for (Object o : raw) {
+            if (!(o instanceof Map<?, ?> s)) continue;
+
+            String streamId = val(s, "stream_id");
+            String merchant = nestedString(s, "merchant_name", "name");
+            if (merchant == null) merchant = val(s, "description");
+            String description = val(s, "description");
+            if (description == null) description = merchant;
+
+            Double avgAmount = nestedDouble(s, "average_amount", "value");
+            if (avgAmount == null) avgAmount = asDouble(s.get("amount"));
+            if (avgAmount == null) avgAmount = 0d;
+            if ("outflow".equals(direction) && avgAmount > 0) avgAmount = -avgAmount;
+
+            OffsetDateTime first = parseDateTime(nestedString(s, "first_date"));
+            OffsetDateTime last  = parseDateTime(nestedString(s, "last_date"));
+            Integer frequencyDays = nestedInt(s, "frequency", "days");
+            OffsetDateTime next = (last != null && frequencyDays != null) ? last.plusDays(frequencyDays) : null;
+
+            Integer occurrences = asInt(s.get("occurrences"));
+            if (occurrences == null) occurrences = 0;
+
+            out.add(RecurringResponse.Stream.builder()
+                    .streamId(streamId)
+                    .description(description)
+                    .merchantName(merchant)
+                    .avgAmount(avgAmount)
+                    .firstDate(first)
+                    .lastDate(last)
+                    .nextEstimatedDate(next)
+                    .occurrences(occurrences)
+                    .frequencyDays(frequencyDays)
+                    .direction(direction)
+                    .source("plaid")
+                    .confidence(PLAID_CONFIDENCE)
+                    .build());
+        }
+        return out;
+    }
+
+    // ---------- Helpers ----------
+    private static Double asDouble(Object o) {
+        if (o instanceof Number n) return n.doubleValue();
+        try { return o == null ? null : Double.valueOf(o.toString()); } catch (Exception e) { return null; }
+    }
+    private static Integer asInt(Object o) {
+        if (o instanceof Number n) return n.intValue();
+        try { return o == null ? null : Integer.valueOf(o.toString()); } catch (Exception e) { return null; }
+    }
+    private static String val(Map<?, ?> m, String key) {
+        Object v = m.get(key); return v == null ? null : v.toString();
+    }
+    private static String nestedString(Map<?, ?> m, String... path) {
+        Object cur = nested(m, path);
+        return cur == null ? null : cur.toString();
+    }
+    private static Double nestedDouble(Map<?, ?> m, String... path) {
+        return asDouble(nested(m, path));
+    }
+    private static Integer nestedInt(Map<?, ?> m, String... path) {
+        return asInt(nested(m, path));
+    }
+    private static Object nested(Map<?, ?> m, String... path) {
+        Object cur = m;
+        for (String p : path) {
+            if (!(cur instanceof Map<?, ?> mm)) return null;
+            cur = mm.get(p);
+            if (cur == null) return null;
+        }
+        return cur;
+    }
+    private static OffsetDateTime parseDateTime(String s) {
+        try { return s == null ? null : OffsetDateTime.parse(s); } catch (Exception e) { return null; }
+    }
+}
@@ -0,0 +1,146 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.ReplicaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Picks the database for read-only queries that opt in. The replica is used only
+ * while its replay lag is within app.r2dbc.replica.max-lag and it has replayed the
+ * user's last write; otherwise, or when no replica is configured, reads go to the primary.
+ *
+ * Read-your-writes holds across nodes: {@link #markWritten(UUID)} records the primary's
+ * WAL insert position in user_last_write once a write has committed, and routing compares
+ * it with the replica's replay position from the last lag check. That costs one primary
+ * key lookup per routed read, and only while a replica is configured and healthy.
+ */
+@Service
+@Slf4j
+public class ReadRouting {
+
+    private final DatabaseClient primary;
+    private final DatabaseClient watermarks; // bulk pool: the marks ride along with sync writes
+    private final DatabaseClient replica; // null when not configured
+    private final MeterRegistry meterRegistry;
+    private final Duration maxLag;
+    private final Duration staleAfter;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile long replayLsn; // as of the last lag check; only moves forward on a replica
+    private volatile long lastCheckNanos;
+
+    public ReadRouting(DatabaseClient primary,
+                       @Qualifier("bulkDatabaseClient") DatabaseClient watermarks,
+                       @Qualifier("replicaDatabaseClient") ObjectProvider<DatabaseClient> replica,
+                       ObjectProvider<ReplicaProperties> replicaProps,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.r2dbc.replica.lag-check-interval-ms:2000}") long lagCheckIntervalMs) {
+        ReplicaProperties props = replicaProps.getIfAvailable(ReplicaProperties::new);
+        this.primary = primary;
+        this.watermarks = watermarks;
+        this.replica = replica.getIfAvailable();
+        this.meterRegistry = meterRegistry;
+        this.maxLag = props.getMaxLag();
+        this.staleAfter = Duration.ofMillis(lagCheckIntervalMs * 3);
+        // nanoTime has an arbitrary origin; lag is unknown until the first check
+        this.lastCheckNanos = System.nanoTime() - staleAfter.toNanos() - 1;
+        meterRegistry.gauge("r2dbc.replica.lag", this, r -> r.lagSeconds);
+    }
+
+    /** Client for a read-only query on {@code userId}'s data. */
+    public Mono<DatabaseClient> forUser(UUID userId) {
+        return Mono.defer(() -> {
+            String reason = replicaUnusableReason();
+            if (reason != null) return Mono.just(route(reason));
+            long replayed = replayLsn;
+            return primary.sql("SELECT CAST(lsn AS text) AS lsn FROM user_last_write WHERE user_id = :uid")
+                    .bind("uid", userId)
+                    .map((row, meta) -> parseLsn(row.get("lsn", String.class)))
+                    .one()
+                    .map(written -> route(Long.compareUnsigned(written, replayed) <= 0 ? null : "recent_write"))
+                    .switchIfEmpty(Mono.fromSupplier(() -> route(null)));
+        });
+    }
+
+    /**
+     * Records that {@code userId}'s data changed. Call it once the write has committed, so the
+     * recorded position is past it. A no-op without a replica.
+     */
+    public Mono<Void> markWritten(UUID userId) {
+        if (replica == null) return Mono.empty();
+        // GREATEST: a concurrent mark that read an earlier position must not move the mark back
+        return watermarks.sql("""
+                        INSERT INTO user_last_write (user_id, lsn, written_at)
+                        VALUES (:uid, pg_current_wal_insert_lsn(), now())
+                        ON CONFLICT (user_id)
+                        DO UPDATE SET lsn        = GREATEST(user_last_write.lsn, EXCLUDED.lsn),
+                                      written_at = EXCLUDED.written_at
+                        """)
+                .bind("uid", userId)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    @Scheduled(fixedDelayString = "${app.r2dbc.replica.lag-check-interval-ms:2000}")
+    public void checkLag() {
+        if (replica == null) return;
+        long startedAt = System.nanoTime();
+        // receive == replay means the replica is caught up even if the primary has been idle
+        replica.sql("""
+                        SELECT CAST(CASE
+                                 WHEN NOT pg_is_in_recovery() THEN 0
+                                 WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                                 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+                               END AS double precision) AS lag_seconds,
+                               CAST(CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn() END AS text) AS replay_lsn
+                        """)
+                .map((row, meta) -> {
+                    Double lag = row.get("lag_seconds", Double.class);
+                    String replay = row.get("replay_lsn", String.class);
+                    // not in recovery: the "replica" is a primary and has every write (-1 is the unsigned max)
+                    return new LagCheck(lag == null ? Double.NaN : lag, replay == null ? -1L : parseLsn(replay));
+                })
+                .one()
+                .subscribe(check -> {
+                    lagSeconds = check.lagSeconds();
+                    replayLsn = check.replayLsn();
+                    lastCheckNanos = startedAt;
+                }, err -> {
+                    lagSeconds = Double.NaN;
+                    log.warn("Replica lag check failed: {}", err.toString());
+                });
+    }
+
+    private record LagCheck(double lagSeconds, long replayLsn) {}
+
+    private DatabaseClient route(String primaryReason) {
+        meterRegistry.counter("r2dbc.read.routed", "target", primaryReason == null ? "replica" : "primary",
+                "reason", primaryReason == null ? "ok" : primaryReason).increment();
+        return primaryReason == null ? replica : primary;
+    }
+
+    private String replicaUnusableReason() {
+        if (replica == null) return "disabled";
+        if (System.nanoTime() - lastCheckNanos > staleAfter.toNanos()) return "lag_unknown";
+        double lag = lagSeconds;
+        if (Double.isNaN(lag) || lag * 1000 > maxLag.toMillis()) return "lagging";
+        return null;
+    }
+
+    // pg_lsn text form "hi/lo" (both hex) as one unsigned 64-bit position
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+}
@@ -1,28 +1,37 @@
 package com.plaid_cash_snapshot.service;
 
 
+import com.plaid_cash_snapshot.config.PlaidClientMetrics;
+import com.plaid_cash_snapshot.config.Spans;
 import com.plaid_cash_snapshot.dto.RecurringResponse;
+import com.plaid_cash_snapshot.model.Item;
 import com.plaid_cash_snapshot.model.RecurringTransaction;
-import com.plaid_cash_snapshot.model.Transaction;
 import com.plaid_cash_snapshot.repository.ItemRepository;
-import com.plaid_cash_snapshot.repository.TransactionRepository;
 import com.plaid_cash_snapshot.repository.RecurringTransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Slf4j
@@ -30,8 +39,21 @@ import java.util.stream.Collectors;
 public class RecurringService {
 
     private final ItemRepository itemRepository;
-    private final TransactionRepository transactionRepository;
+    private final DatabaseClient db;
     private final RecurringTransactionRepository recurringRepo;
+    private final MerchantService merchantService;
+    private final PlaidRecurringCache plaidRecurringCache;
+    private final MeterRegistry meterRegistry;
+    private final TransactionalOperator transactionalOperator;
+    private final ReadRouting readRouting;
+    private final PlaidClientMetrics plaidClientMetrics;
+    private final Spans spans;
+
+    @Qualifier("computeScheduler")
+    private final Scheduler computeScheduler;
+
+    @Qualifier("bulkDatabaseClient")
+    private final DatabaseClient bulkDb;
 
     @Value("${plaid.base-url:https://sandbox.plaid.com}")
     private String plaidBaseUrl;
@@ -43,40 +65,97 @@ public class RecurringService {
     private String plaidSecret;
 
     private WebClient client() {
-        return WebClient.builder().baseUrl(plaidBaseUrl).build();
+        return WebClient.builder().baseUrl(plaidBaseUrl).filter(plaidClientMetrics).build();
     }
 
+    /**
+     * Serves the precomputed snapshot when it is newer than the user's last sync/link;
+     * otherwise computes now and stores the result for the next read.
+     */
     public Mono<RecurringResponse> getRecurring(UUID userId, String type) {
+        return getRecurring(userId, type, itemRepository.findByUserId(userId).next());
+    }
+
+    /** As getRecurring(userId, type), for callers that already loaded the user's item. */
+    public Mono<RecurringResponse> getRecurring(UUID userId, String type, Item item) {
+        return getRecurring(userId, type, Mono.just(item));
+    }
+
+    private Mono<RecurringResponse> getRecurring(UUID userId, String type, Mono<Item> item) {
         String direction = normalizeType(type);
 
-        return itemRepository.findByUserId(userId)
-                .next()
-                .flatMap(item ->
-                        fetchFromPlaid(item.getAccessToken(), direction)
-                                .flatMap(plaidStreams -> {
-                                    if (!plaidStreams.isEmpty()) {
-                                        // Option A: persist Plaid streams
-                                        return upsertRecurring(userId, direction, plaidStreams)
-                                                .thenReturn(buildPlaidResponse(userId, direction, plaidStreams));
-                                    }
-                                    // Option B: custom detection (no persistence)
-                                    return detectCustom(userId, direction)
-                                            .map(customStreams -> buildCustomResponse(userId, direction, customStreams));
-                                })
-                                .onErrorResume(err -> {
-                                    log.warn("Plaid recurring failed, falling back to custom: {}", err.toString());
-                                    return detectCustom(userId, direction)
-                                            .map(customStreams -> buildCustomResponse(userId, direction, customStreams));
-                                })
-                )
-                .switchIfEmpty(
-                        detectCustom(userId, direction)
-                                .map(customStreams -> buildCustomResponse(userId, direction, customStreams))
-                );
+        return readSnapshot(userId, direction)
+                .switchIfEmpty(Mono.defer(() -> {
+                    OffsetDateTime computedAt = OffsetDateTime.now(ZoneOffset.UTC);
+                    return compute(userId, direction, item, readRouting.forUser(userId), StageTimings.NONE)
+                            .flatMap(response -> persist(userId, direction, response, computedAt)
+                                    .onErrorResume(err -> {
+                                        log.warn("Persisting recurring streams failed for user {}: {}", userId, err.toString());
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(response));
+                }));
+    }
+
+    /** Recomputes and persists one user/direction; errors propagate to the caller (batch job). */
+    public Mono<RecurringResponse> refresh(UUID userId, String type, StageTimings timings) {
+        String direction = normalizeType(type);
+        return Mono.defer(() -> {
+            OffsetDateTime computedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            // batch work: the history scan runs on the bulk pool
+            return compute(userId, direction, itemRepository.findByUserId(userId).next(), Mono.just(bulkDb), timings)
+                    .flatMap(response -> timings.time("persist", persist(userId, direction, response, computedAt))
+                            .thenReturn(response));
+        });
+    }
+
+    // Plaid streams when Plaid has them, otherwise the custom detector
+    private Mono<RecurringResponse> compute(UUID userId, String direction, Mono<Item> itemMono, Mono<DatabaseClient> history,
+                                            StageTimings timings) {
+        return itemMono
+                .flatMap(item -> timings.time("plaid", timedDetect("plaid", fetchFromPlaid(item, direction)))
+                        .onErrorResume(err -> {
+                            log.warn("Plaid recurring failed, falling back to custom: {}", err.toString());
+                            return Mono.just(List.of());
+                        }))
+                .defaultIfEmpty(List.of())
+                .flatMap(plaidStreams -> {
+                    if (!plaidStreams.isEmpty()) {
+                        // Option A: Plaid streams
+                        return Mono.just(buildPlaidResponse(userId, direction, plaidStreams));
+                    }
+                    // Option B: custom detection
+                    return timedDetect("custom", detectCustom(userId, direction, history, timings))
+                            .map(customStreams -> buildCustomResponse(userId, direction, customStreams));
+                });
+    }
+
+    // recurring.detect{method=plaid|custom, outcome}, inside a recurring.detect span
+    private <T> Mono<T> timedDetect(String method, Mono<T> detection) {
+        return spans.mono("recurring.detect", Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return detection.doFinally(sig -> sample.stop(meterRegistry.timer("recurring.detect",
+                    "method", method,
+                    "outcome", sig == SignalType.ON_COMPLETE ? "success" : sig.name().toLowerCase(Locale.ROOT))));
+        }), "method", method);
     }
 
     // ---------- Option A: Plaid ----------
-    private Mono<List<RecurringResponse.Stream>> fetchFromPlaid(String accessToken, String direction) {
+    private Mono<List<RecurringResponse.Stream>> fetchFromPlaid(Item item, String direction) {
+        // Only real Plaid responses are cached. A 4xx (no recurring product, PRODUCT_NOT_READY,
+        // RATE_LIMIT_EXCEEDED, ...) means "use the custom detector this time" and is not stored
+        // under the cursor, so the next read asks Plaid again.
+        return plaidRecurringCache.get(item, () -> fetchStreamsFromPlaid(item.getAccessToken()))
+                .onErrorResume(WebClientResponseException.class, ex -> {
+                    if (ex.getStatusCode().is4xxClientError() || ex.getStatusCode().equals(HttpStatus.NOT_IMPLEMENTED)) {
+                        return Mono.just(PlaidRecurringCache.Streams.EMPTY);
+                    }
+                    return Mono.error(ex);
+                })
+                .map(streams -> streams.forDirection(direction));
+    }
+
+    private Mono<PlaidRecurringCache.Streams> fetchStreamsFromPlaid(String accessToken) {
         WebClient http = client();
         Map<String, Object> body = Map.of(
                 "access_token", accessToken,
@@ -90,153 +169,244 @@ public class RecurringService {
                 .bodyValue(body)
                 .retrieve()
                 .bodyToMono(Map.class)
-                .map(map -> mapToPlaidStreams(map, direction))
-                .onErrorResume(WebClientResponseException.class, ex -> {
-                    if (ex.getStatusCode().is4xxClientError() || ex.getStatusCode().equals(HttpStatus.NOT_IMPLEMENTED)) {
-                        return Mono.just(List.of());
-                    }
-                    return Mono.error(ex);
-                });
-    }
-
-    @SuppressWarnings("unchecked")
-    private List<RecurringResponse.Stream> mapToPlaidStreams(Map<?, ?> root, String direction) {
-        Object key = direction.equals("inflow") ? root.get("inflow_streams") : root.get("outflow_streams");
-        if (!(key instanceof List<?> raw)) return List.of();
-
-        List<RecurringResponse.Stream> out = new ArrayList<>();
-        for (Object o : raw) {
-            if (!(o instanceof Map<?, ?> s)) continue;
-
-            String streamId = val(s, "stream_id");
-            String merchant = nestedString(s, "merchant_name", "name");
-            if (merchant == null) merchant = val(s, "description");
-            String description = val(s, "description");
-            if (description == null) description = merchant;
-
-            Double avgAmount = nestedDouble(s, "average_amount", "value");
-            if (avgAmount == null) avgAmount = asDouble(s.get("amount"));
-            if (avgAmount == null) avgAmount = 0d;
-            if ("outflow".equals(direction) && avgAmount > 0) avgAmount = -avgAmount;
-
-            OffsetDateTime first = parseDateTime(nestedString(s, "first_date"));
-            OffsetDateTime last  = parseDateTime(nestedString(s, "last_date"));
-            Integer frequencyDays = nestedInt(s, "frequency", "days");
-            OffsetDateTime next = (last != null && frequencyDays != null) ? last.plusDays(frequencyDays) : null;
-
-            Integer occurrences = asInt(s.get("occurrences"));
-            if (occurrences == null) occurrences = 0;
-
-            out.add(RecurringResponse.Stream.builder()
-                    .streamId(streamId)
-                    .description(description)
-                    .merchantName(merchant)
-                    .avgAmount(avgAmount)
-                    .firstDate(first)
-                    .lastDate(last)
-                    .nextEstimatedDate(next)
-                    .occurrences(occurrences)
-                    .frequencyDays(frequencyDays)
-                    .direction(direction)
-                    .source("plaid")
-                    .build());
-        }
-        return out;
+                .map(map -> new PlaidRecurringCache.Streams(
+                        PlaidRecurringMapper.map(map, "inflow"),
+                        PlaidRecurringMapper.map(map, "outflow")));
     }
 
     // ---------- Option B: Custom detector ----------
-    private Mono<List<RecurringResponse.Stream>> detectCustom(UUID userId, String direction) {
-        return transactionRepository.findByUserId(userId)
-                .filter(tx -> ("outflow".equals(direction) && safeDouble(tx.getAmount()) > 0)
-                        || ("inflow".equals(direction)  && safeDouble(tx.getAmount()) < 0))
-                .filter(tx -> tx.getMerchantName() != null && !tx.getMerchantName().isBlank())
-                .collectList()
-                .map(txns -> buildCustomStreams(txns, direction));
+    private Mono<List<RecurringResponse.Stream>> detectCustom(UUID userId, String direction, Mono<DatabaseClient> history,
+                                                              StageTimings timings) {
+        return timings.time("load", spans.mono("recurring.load", loadColumns(history, userId, direction)))
+                .flatMap(cols -> timings.time("detect", spans.mono("recurring.compute",
+                                Mono.fromCallable(() -> CustomRecurringDetector.detect(cols))
+                                        // CPU-bound: run on the bounded compute pool, not the event loop that delivered the rows
+                                        .subscribeOn(computeScheduler)
+                                        .onErrorMap(RejectedExecutionException.class, ex -> {
+                                            meterRegistry.counter("recurring.compute.rejected").increment();
+                                            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                                    "Recurring detection is at capacity, retry shortly");
+                                        })
+                                        .doOnNext(candidates -> {
+                                            spans.tag("recurring.rows", cols.size);
+                                            spans.tag("recurring.candidates", candidates.size());
+                                        })))
+                        .flatMap(candidates -> toStreams(candidates, cols, direction)));
     }
 
-    private List<RecurringResponse.Stream> buildCustomStreams(List<Transaction> txns, String direction) {
-        if (txns.isEmpty()) return List.of();
+    /**
+     * Loads only what the detector needs, straight into primitive columns.
+     * Direction and blank-merchant filtering happen in SQL. Requests read through
+     * ReadRouting (possibly the replica); the precompute job reads on the bulk pool. The
+     * client is resolved only here, so a Plaid answer never pays for a routing lookup.
+     */
+    private Mono<CustomRecurringDetector.Columns> loadColumns(Mono<DatabaseClient> history, UUID userId, String direction) {
+        String amountFilter = "outflow".equals(direction) ? "amount > 0" : "amount < 0";
+        String sql = """
+                SELECT merchant_id,
+                       CASE WHEN merchant_id IS NULL THEN merchant_name END AS merchant_name,
+                       (date - DATE '1970-01-01')                           AS epoch_day,
+                       ROUND(ABS(amount) * 100)::bigint                     AS amount_cents
+                  FROM transactions
+                 WHERE user_id = :uid
+                   AND merchant_name IS NOT NULL
+                   AND btrim(merchant_name) <> ''
+                   AND date IS NOT NULL
+                   AND %s
+                """.formatted(amountFilter);
+
+        return history.flatMap(client -> {
+            CustomRecurringDetector.Columns cols = new CustomRecurringDetector.Columns(256);
+            Map<String, Integer> legacyIds = new HashMap<>();
+            return client.sql(sql)
+                    .bind("uid", userId)
+                    .map((row, meta) -> {
+                        Integer merchantId = row.get("merchant_id", Integer.class);
+                        int id = merchantId != null
+                                ? merchantId
+                                : legacyMerchantId(row.get("merchant_name", String.class), legacyIds, cols);
+                        return cols.add(id, row.get("epoch_day", Integer.class), row.get("amount_cents", Long.class));
+                    })
+                    .all()
+                    .then(Mono.just(cols));
+        });
+    }
 
-        Map<Key, List<Transaction>> grouped = txns.stream()
-                .collect(Collectors.groupingBy(tx -> new Key(norm(tx.getMerchantName()),
-                        Math.round(Math.abs(safeDouble(tx.getAmount())) / 5.0) * 5.0)));
+    // Rows ingested before the merchant dictionary existed have no merchant_id;
+    // map them onto a known id, or a per-call negative id so grouping still runs on ints.
+    private int legacyMerchantId(String merchantName, Map<String, Integer> legacyIds,
+                                 CustomRecurringDetector.Columns cols) {
+        String normalized = MerchantNormalizer.normalize(merchantName);
+        Integer known = merchantService.cachedId(normalized);
+        if (known != null) return known;
+        return legacyIds.computeIfAbsent(normalized, k -> {
+            int id = -(legacyIds.size() + 1);
+            cols.legacyNames.put(id, merchantName.trim());
+            return id;
+        });
+    }
 
-        List<RecurringResponse.Stream> streams = new ArrayList<>();
-        for (Map.Entry<Key, List<Transaction>> e : grouped.entrySet()) {
-            List<Transaction> group = e.getValue();
-            if (group.size() < 3) continue;
+    private Mono<List<RecurringResponse.Stream>> toStreams(List<CustomRecurringDetector.Candidate> candidates,
+                                                          CustomRecurringDetector.Columns cols,
+                                                          String direction) {
+        if (candidates.isEmpty()) return Mono.just(List.of());
 
-            List<LocalDate> dates = group.stream().map(Transaction::getDate).filter(Objects::nonNull).sorted().toList();
-            if (dates.size() < 3) continue;
+        Set<Integer> ids = new HashSet<>();
+        for (CustomRecurringDetector.Candidate c : candidates) {
+            if (c.merchantId() > 0) ids.add(c.merchantId());
+        }
 
-            List<Long> deltas = new ArrayList<>();
-            for (int i = 1; i < dates.size(); i++) {
-                deltas.add(java.time.temporal.ChronoUnit.DAYS.between(dates.get(i - 1), dates.get(i)));
+        return merchantService.displayNames(ids).map(names -> {
+            List<RecurringResponse.Stream> streams = new ArrayList<>(candidates.size());
+            for (CustomRecurringDetector.Candidate c : candidates) {
+                String merchant = c.merchantId() > 0 ? names.get(c.merchantId()) : cols.legacyNames.get(c.merchantId());
+                OffsetDateTime firstDt = LocalDate.ofEpochDay(c.firstEpochDay()).atStartOfDay().atOffset(ZoneOffset.UTC);
+                OffsetDateTime lastDt  = LocalDate.ofEpochDay(c.lastEpochDay()).atStartOfDay().atOffset(ZoneOffset.UTC);
+                double signedAvg = "outflow".equals(direction) ? -c.avgAbsAmount() : c.avgAbsAmount();
+
+                streams.add(RecurringResponse.Stream.builder()
+                        .streamId(null)
+                        .description(merchant)
+                        .merchantName(merchant)
+                        .avgAmount(round2(signedAvg))
+                        .firstDate(firstDt)
+                        .lastDate(lastDt)
+                        .nextEstimatedDate(lastDt.plusDays(c.frequencyDays()))
+                        .occurrences(c.occurrences())
+                        .frequencyDays(c.frequencyDays())
+                        .direction(direction)
+                        .source("custom")
+                        .confidence(c.confidence())
+                        .build());
             }
-            int frequencyDays = (int) Math.round(median(deltas));
-            OffsetDateTime firstDt = dates.get(0).atStartOfDay().atOffset(ZoneOffset.UTC);
-            OffsetDateTime lastDt  = dates.get(dates.size() - 1).atStartOfDay().atOffset(ZoneOffset.UTC);
-            OffsetDateTime nextEst = lastDt.plusDays(frequencyDays);
-
-            double avgAbs = group.stream().mapToDouble(t -> Math.abs(safeDouble(t.getAmount()))).average().orElse(0d);
-            double signedAvg = "outflow".equals(direction) ? -avgAbs : avgAbs;
-
-            String merchant = group.get(0).getMerchantName();
-
-            streams.add(RecurringResponse.Stream.builder()
-                    .streamId(null)
-                    .description(merchant)
-                    .merchantName(merchant)
-                    .avgAmount(round2(signedAvg))
-                    .firstDate(firstDt)
-                    .lastDate(lastDt)
-                    .nextEstimatedDate(nextEst)
-                    .occurrences(group.size())
-                    .frequencyDays(frequencyDays)
-                    .direction(direction)
-                    .source("custom")
-                    .build());
-        }
+            return streams;
+        });
+    }
 
-        streams.sort(Comparator.comparingInt(RecurringResponse.Stream::occurrences).reversed());
-        return streams;
+    // ---------- Snapshot (precomputed streams) ----------
+
+    // A snapshot is fresh while nothing was synced or linked for the user after it was computed
+    private Mono<RecurringResponse> readSnapshot(UUID userId, String direction) {
+        return db.sql("""
+                        SELECT s.plaid_streams, s.custom_streams
+                          FROM recurring_snapshots s
+                         WHERE s.user_id = :uid
+                           AND s.direction = :dir
+                           AND s.computed_at >= COALESCE(
+                                 (SELECT MAX(i.updated_at) FROM items i WHERE i.user_id = :uid),
+                                 '-infinity'::timestamptz)
+                        """)
+                .bind("uid", userId)
+                .bind("dir", direction)
+                .map((row, meta) -> RecurringResponse.DetectionMethods.builder()
+                        .plaidApi(row.get("plaid_streams", Integer.class))
+                        .customDetector(row.get("custom_streams", Integer.class))
+                        .build())
+                .one()
+                .flatMap(methods -> recurringRepo.findByUserIdAndDirection(userId, direction)
+                        .filter(r -> Boolean.TRUE.equals(r.getIsActive()))
+                        .map(this::toStream)
+                        .collectSortedList(Comparator.comparingInt(RecurringResponse.Stream::occurrences).reversed())
+                        .map(streams -> RecurringResponse.builder()
+                                .userId(userId)
+                                .type(direction)
+                                .recurringTransactions(streams)
+                                .totalStreams(streams.size())
+                                .detectionMethods(methods)
+                                .build()));
     }
 
-    // ---------- Persist only Plaid streams (idempotent UPSERT) ----------
-    private Mono<Void> upsertRecurring(UUID userId, String direction, List<RecurringResponse.Stream> streams) {
+    private RecurringResponse.Stream toStream(RecurringTransaction r) {
+        return RecurringResponse.Stream.builder()
+                .streamId(r.getStreamId())
+                .description(r.getMerchantName())
+                .merchantName(r.getMerchantName())
+                .avgAmount(r.getAvgAmount())
+                .firstDate(toOffsetDateTime(r.getFirstDate()))
+                .lastDate(toOffsetDateTime(r.getLastDate()))
+                .nextEstimatedDate(toOffsetDateTime(r.getNextEstimatedDate()))
+                .occurrences(r.getOccurrences() == null ? 0 : r.getOccurrences())
+                .frequencyDays(r.getFrequencyDays())
+                .direction(r.getDirection())
+                .source(r.getSource())
+                .confidence(r.getConfidence())
+                .build();
+    }
+
+    /**
+     * Replaces the user's streams for a direction with the given result and stamps the snapshot
+     * with {@code computedAt}, taken before the computation started: a sync that lands while it
+     * runs is newer than the snapshot, so the next read recomputes.
+     *
+     * Runs in one transaction so readers never see a half-replaced set. The snapshot row is
+     * upserted first, which locks it: concurrent persists for the same user and direction (a
+     * request racing the nightly job, or another node) run one after the other, and the later
+     * one's DELETE sees the earlier one's rows. A result computed before the stored one is
+     * dropped. Streams are inserted, not merged by merchant: the detector and Plaid can both
+     * return several streams per merchant and frequency, and every one of them must survive so
+     * the stored set matches the snapshot counts.
+     */
+    private Mono<Void> persist(UUID userId, String direction, RecurringResponse response, OffsetDateTime computedAt) {
         OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
 
-        return Flux.fromIterable(streams)
-                .flatMap(s -> {
-                    String freq = freqFromDays(s.frequencyDays());
-                    String merchant = (s.merchantName() != null && !s.merchantName().isBlank())
-                            ? s.merchantName()
-                            : (s.description() == null ? "Unknown" : s.description());
-
-                    return recurringRepo.findByUserIdAndDirectionAndMerchantNameAndFrequency(userId, direction, merchant, freq)
-                            .defaultIfEmpty(RecurringTransaction.builder()
-                                    .userId(userId)
-                                    .direction(direction)
-                                    .merchantName(merchant)
-                                    .frequency(freq)
-                                    .createdAt(now)
-                                    .isActive(true)
-                                    .build())
-                            .flatMap(existing -> {
-                                RecurringTransaction toSave = existing.toBuilder()
-                                        .avgAmount(s.avgAmount())
-                                        .minAmount(s.avgAmount())
-                                        .maxAmount(s.avgAmount())
-                                        .occurrences(s.occurrences())
-                                        .lastDate(toLocalDate(s.lastDate()))
-                                        .nextEstimatedDate(toLocalDate(s.nextEstimatedDate()))
-                                        .confidence(0.9) // Plaid only
-                                        .updatedAt(now)
-                                        .build();
-                                return recurringRepo.save(toSave);
-                            });
-                })
-                .then();
+        // ON CONFLICT locks the existing row even when the WHERE rejects the update
+        Mono<Void> work = db.sql("""
+                        INSERT INTO recurring_snapshots (user_id, direction, computed_at, plaid_streams, custom_streams)
+                        VALUES (:uid, :dir, :at, :plaid, :custom)
+                        ON CONFLICT (user_id, direction)
+                        DO UPDATE SET computed_at    = EXCLUDED.computed_at,
+                                      plaid_streams  = EXCLUDED.plaid_streams,
+                                      custom_streams = EXCLUDED.custom_streams
+                         WHERE recurring_snapshots.computed_at <= EXCLUDED.computed_at
+                        """)
+                .bind("uid", userId)
+                .bind("dir", direction)
+                .bind("at", computedAt)
+                .bind("plaid", response.detectionMethods().plaidApi())
+                .bind("custom", response.detectionMethods().customDetector())
+                .fetch().rowsUpdated()
+                .flatMap(stamped -> {
+                    if (stamped == 0) {
+                        log.debug("Recurring result for user {} {} superseded by a newer snapshot", userId, direction);
+                        return Mono.empty();
+                    }
+                    return db.sql("DELETE FROM recurring_transactions WHERE user_id = :uid AND direction = :dir")
+                            .bind("uid", userId)
+                            .bind("dir", direction)
+                            .fetch().rowsUpdated()
+                            .thenMany(Flux.fromIterable(response.recurringTransactions())
+                                    .concatMap(s -> insertStream(userId, direction, s, now)))
+                            .then();
+                });
+
+        return transactionalOperator.transactional(work);
+    }
+
+    private Mono<RecurringTransaction> insertStream(UUID userId, String direction, RecurringResponse.Stream s, OffsetDateTime now) {
+        String merchant = (s.merchantName() != null && !s.merchantName().isBlank())
+                ? s.merchantName()
+                : (s.description() == null ? "Unknown" : s.description());
+
+        return recurringRepo.save(RecurringTransaction.builder()
+                .userId(userId)
+                .direction(direction)
+                .merchantName(merchant)
+                .frequency(freqFromDays(s.frequencyDays()))
+                .streamId(s.streamId())
+                .source(s.source())
+                .avgAmount(s.avgAmount())
+                .minAmount(s.avgAmount())
+                .maxAmount(s.avgAmount())
+                .occurrences(s.occurrences())
+                .firstDate(toLocalDate(s.firstDate()))
+                .lastDate(toLocalDate(s.lastDate()))
+                .nextEstimatedDate(toLocalDate(s.nextEstimatedDate()))
+                .frequencyDays(s.frequencyDays())
+                .confidence(s.confidence())
+                .isActive(true)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
     }
 
     // ---------- Response builder ----------
@@ -274,64 +444,9 @@ public class RecurringService {
 
 
     // ---------- Helpers ----------
-    private static String normalizeType(String t) {
+    static String normalizeType(String t) {
         return "inflow".equalsIgnoreCase(t) ? "inflow" : "outflow";
     }
-    private static String norm(String s) {
-        return s == null ? null : s.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[^a-z0-9\\s]", "");
-    }
-    private static double median(List<Long> values) {
-        if (values.isEmpty()) return 30;
-        List<Long> v = new ArrayList<>(values);
-        Collections.sort(v);
-        int n = v.size();
-        return n % 2 == 1 ? v.get(n / 2) : (v.get(n / 2 - 1) + v.get(n / 2)) / 2.0;
-    }
-    private static Double asDouble(Object o) {
-        if (o instanceof Number n) return n.doubleValue();
-        try { return o == null ? null : Double.valueOf(o.toString()); } catch (Exception e) { return null; }
-    }
-    private static Integer asInt(Object o) {
-        if (o instanceof Number n) return n.intValue();
-        try { return o == null ? null : Integer.valueOf(o.toString()); } catch (Exception e) { return null; }
-    }
-    private static String val(Map<?, ?> m, String key) {
-        Object v = m.get(key); return v == null ? null : v.toString();
-    }
-    @SuppressWarnings("unchecked")
-    private static String nestedString(Map<?, ?> m, String... path) {
-        Object cur = m;
-        for (String p : path) {
-            if (!(cur instanceof Map<?, ?> mm)) return null;
-            cur = mm.get(p);
-            if (cur == null) return null;
-        }
-        return cur.toString();
-    }
-    @SuppressWarnings("unchecked")
-    private static Double nestedDouble(Map<?, ?> m, String... path) {
-        Object cur = m;
-        for (String p : path) {
-            if (!(cur instanceof Map<?, ?> mm)) return null;
-            cur = mm.get(p);
-            if (cur == null) return null;
-        }
-        return asDouble(cur);
-    }
-    @SuppressWarnings("unchecked")
-    private static Integer nestedInt(Map<?, ?> m, String... path) {
-        Object cur = m;
-        for (String p : path) {
-            if (!(cur instanceof Map<?, ?> mm)) return null;
-            cur = mm.get(p);
-            if (cur == null) return null;
-        }
-        return asInt(cur);
-    }
-    private static OffsetDateTime parseDateTime(String s) {
-        try { return s == null ? null : OffsetDateTime.parse(s); } catch (Exception e) { return null; }
-    }
-    private static double safeDouble(Double d) { return d == null ? 0d : d; }
     private static double round2(double v) { return Math.round(v * 100.0) / 100.0; }
     private static String freqFromDays(Integer d) {
         if (d == null) return "monthly";
@@ -341,6 +456,5 @@ public class RecurringService {
         return "quarterly";
     }
     private static LocalDate toLocalDate(OffsetDateTime odt) { return odt == null ? null : odt.toLocalDate(); }
-
-    private record Key(String merchantNorm, double amountBucket) {}
+    private static OffsetDateTime toOffsetDateTime(LocalDate d) { return d == null ? null : d.atStartOfDay().atOffset(ZoneOffset.UTC); }
 }
@@ -0,0 +1,38 @@
+package com.plaid_cash_snapshot.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates wall-clock nanos per named stage across many reactive calls.
+ * Used by batch jobs to report where time went; {@link #NONE} records nothing.
+ */
+public class StageTimings {
+
+    public static final StageTimings NONE = new StageTimings() {
+        @Override
+        public <T> Mono<T> time(String stage, Mono<T> mono) {
+            return mono;
+        }
+    };
+
+    private final Map<String, LongAdder> nanos = new ConcurrentHashMap<>();
+
+    public <T> Mono<T> time(String stage, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(sig -> nanos.computeIfAbsent(stage, k -> new LongAdder()).add(System.nanoTime() - start));
+        });
+    }
+
+    /** Snapshot of total nanos per stage. */
+    public Map<String, Long> totals() {
+        Map<String, Long> out = new TreeMap<>();
+        nanos.forEach((k, v) -> out.put(k, v.sum()));
+        return out;
+    }
+}
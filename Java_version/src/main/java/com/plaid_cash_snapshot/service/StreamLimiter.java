@@ -0,0 +1,47 @@
+package com.plaid_cash_snapshot.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounds long-lived response streams that hold a database connection while the client reads:
+ * at most maxConcurrent run at once, and each is cut off with an error after maxDuration, so
+ * slow or stalled readers cannot pin a pool. Over the limit a request fails fast with 503
+ * instead of queueing behind the streams already running.
+ */
+final class StreamLimiter {
+
+    private final String name;
+    private final Semaphore permits;
+    private final Duration maxDuration;
+
+    StreamLimiter(String name, int maxConcurrent, Duration maxDuration) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxDuration = maxDuration;
+    }
+
+    <T> Flux<T> limit(Flux<T> source) {
+        return Flux.defer(() -> {
+            if (!permits.tryAcquire()) {
+                return Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many concurrent " + name + "s, retry later"));
+            }
+            // an error (not a silent end) so the client sees a truncated response, not a complete one
+            Mono<Void> deadline = Mono.delay(maxDuration)
+                    .then(Mono.error(() -> new TimeoutException(name + " exceeded " + maxDuration)));
+            return source.takeUntilOther(deadline)
+                    .doFinally(sig -> permits.release());
+        });
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+}
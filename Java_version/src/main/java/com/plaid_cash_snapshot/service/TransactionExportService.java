@@ -0,0 +1,184 @@
+package com.plaid_cash_snapshot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.plaid_cash_snapshot.config.Spans;
+import com.plaid_cash_snapshot.config.TransactionQueryProperties;
+import com.plaid_cash_snapshot.dto.TransactionView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gzip-compressed NDJSON or CSV export of a user's transactions, on the bulk pool so a
+ * long export never holds an interactive connection. Rows come off a database cursor,
+ * are encoded and compressed one at a time and leave as response buffers of about
+ * app.transactions.export-chunk-size; nothing is collected, and the cursor only fetches
+ * as fast as the client reads. Since that read pace is the client's, at most
+ * app.transactions.export-max-concurrent exports run at once, each for at most
+ * export-max-duration, so downloads cannot take over the bulk pool sync writes need.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    private static final byte[] CSV_HEADER = ("id,transaction_id,account_id,date,authorized_date,amount,"
+            + "iso_currency_code,name,merchant_name,category,pending\n").getBytes(StandardCharsets.UTF_8);
+
+    private final DatabaseClient bulkDb;
+    private final TransactionQueryService transactionQueryService;
+    private final TransactionQueryProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Spans spans;
+    private final StreamLimiter exports;
+
+    public TransactionExportService(@Qualifier("bulkDatabaseClient") DatabaseClient bulkDb,
+                                    TransactionQueryService transactionQueryService,
+                                    TransactionQueryProperties properties,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    Spans spans) {
+        this.bulkDb = bulkDb;
+        this.transactionQueryService = transactionQueryService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.spans = spans;
+        this.exports = new StreamLimiter("export",
+                properties.getExportMaxConcurrent(), properties.getExportMaxDuration());
+    }
+
+    public enum Format {
+        NDJSON("ndjson"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(value)) return f;
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + value);
+        }
+    }
+
+    /**
+     * The gzip stream as response buffers. export.rows and export.bytes (compressed)
+     * count per format, so their rates are rows/s and bytes/s; export.duration times
+     * each export by outcome.
+     */
+    public Flux<DataBuffer> export(TransactionQueryService.Filter filter, Format format) {
+        String tag = format.extension();
+        Counter rowsCounter = meterRegistry.counter("export.rows", "format", tag);
+        Counter bytesCounter = meterRegistry.counter("export.bytes", "format", tag);
+        int chunkSize = (int) properties.getExportChunkSize().toBytes();
+
+        return spans.flux("transactions.export", exports.limit(Flux.defer(() -> {
+            long startedAt = System.nanoTime();
+            AtomicLong rows = new AtomicLong();
+            AtomicLong bytes = new AtomicLong();
+
+            Flux<byte[]> lines = transactionQueryService
+                    .rows(bulkDb, filter, null, properties.getExportFetchSize())
+                    .map(row -> {
+                        rows.incrementAndGet();
+                        rowsCounter.increment();
+                        return encode(row, format);
+                    });
+            Flux<byte[]> body = format == Format.CSV ? lines.startWith(CSV_HEADER) : lines;
+
+            // closed once the rows have terminated; a cancel can still race a write, which GzipChunker tolerates
+            GzipChunker gzip = new GzipChunker(chunkSize);
+            return body.<byte[]>handle((line, sink) -> {
+                        byte[] chunk = gzip.write(line);
+                        if (chunk != null) sink.next(chunk);
+                    })
+                    .concatWith(Mono.fromCallable(gzip::finish))
+                    .doFinally(sig -> gzip.close())
+                    .<DataBuffer>map(chunk -> {
+                        bytes.addAndGet(chunk.length);
+                        bytesCounter.increment(chunk.length);
+                        return DefaultDataBufferFactory.sharedInstance.wrap(chunk);
+                    })
+                    .doFinally(sig -> {
+                        long elapsed = System.nanoTime() - startedAt;
+                        meterRegistry.timer("export.duration", "format", tag,
+                                        "outcome", sig == SignalType.ON_COMPLETE ? "success" : sig.name().toLowerCase(Locale.ROOT))
+                                .record(elapsed, TimeUnit.NANOSECONDS);
+                        double seconds = Math.max(elapsed / 1e9, 1e-3);
+                        log.info("Export for user {} ({}, {}): {} rows, {} gzip bytes in {} ms ({} rows/s, {} bytes/s)",
+                                filter.userId(), tag, sig, rows.get(), bytes.get(), elapsed / 1_000_000,
+                                Math.round(rows.get() / seconds), Math.round(bytes.get() / seconds));
+                    });
+        })), "format", tag);
+    }
+
+    private byte[] encode(TransactionView row, Format format) {
+        return switch (format) {
+            case NDJSON -> ndjson(row);
+            case CSV -> csv(row);
+        };
+    }
+
+    private byte[] ndjson(TransactionView row) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(row);
+            byte[] line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            return line;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unserializable transaction " + row.id(), e);
+        }
+    }
+
+    private static byte[] csv(TransactionView row) {
+        StringBuilder line = new StringBuilder(256);
+        line.append(row.id()).append(',');
+        field(line, row.transactionId()).append(',');
+        line.append(row.accountId()).append(',');
+        field(line, row.date()).append(',');
+        field(line, row.authorizedDate()).append(',');
+        field(line, row.amount() == null ? null : BigDecimal.valueOf(row.amount()).toPlainString()).append(',');
+        field(line, row.isoCurrencyCode()).append(',');
+        field(line, row.name()).append(',');
+        field(line, row.merchantName()).append(',');
+        field(line, row.category()).append(',');
+        field(line, row.pending()).append('\n');
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // RFC 4180: quote fields containing a separator, quote or line break; null is empty
+    static StringBuilder field(StringBuilder line, Object value) {
+        if (value == null) return line;
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return line.append(s);
+        }
+        return line.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+}
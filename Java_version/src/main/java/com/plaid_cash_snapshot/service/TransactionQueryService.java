@@ -0,0 +1,186 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.Spans;
+import com.plaid_cash_snapshot.config.TransactionQueryProperties;
+import com.plaid_cash_snapshot.dto.TransactionPage;
+import com.plaid_cash_snapshot.dto.TransactionView;
+import io.r2dbc.spi.Row;
+import lombok.Builder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads a user's transactions newest first with keyset pagination on (date, id): a page
+ * starts strictly after the previous page's last row, so each page is one range scan on
+ * idx_transactions_user_date_id whatever the history length or page depth. The stream
+ * variant runs the same query without a limit on a cursor with a bounded fetch size; at
+ * most app.transactions.stream-max-concurrent streams run at once, each for at most
+ * stream-max-duration, since every one holds an interactive connection while the client reads.
+ */
+@Service
+@EnableConfigurationProperties(TransactionQueryProperties.class)
+public class TransactionQueryService {
+
+    private static final String COLUMNS = """
+            SELECT t.id, t.transaction_id, t.account_id, t.amount, t.iso_currency_code, t.date,
+                   t.authorized_date, t.name, t.merchant_name, CAST(t.category AS text) AS category, t.pending
+              FROM transactions t
+             WHERE t.user_id = :uid
+            """;
+
+    private final ReadRouting readRouting;
+    private final TransactionQueryProperties properties;
+    private final Spans spans;
+    private final StreamLimiter streams;
+
+    public TransactionQueryService(ReadRouting readRouting, TransactionQueryProperties properties, Spans spans) {
+        this.readRouting = readRouting;
+        this.properties = properties;
+        this.spans = spans;
+        this.streams = new StreamLimiter("transaction stream",
+                properties.getStreamMaxConcurrent(), properties.getStreamMaxDuration());
+    }
+
+    /** Optional filters; null fields are not applied. Dates and amounts are inclusive. */
+    @Builder
+    public record Filter(UUID userId, UUID accountId, LocalDate from, LocalDate to,
+                         BigDecimal minAmount, BigDecimal maxAmount, Boolean pending) {}
+
+    /** Position after a row, as handed to clients in next_cursor. */
+    record Position(LocalDate date, UUID id) {}
+
+    public Mono<TransactionPage> page(Filter filter, String cursor, Integer limit) {
+        int size = limit == null || limit <= 0
+                ? properties.getDefaultPageSize()
+                : Math.min(limit, properties.getMaxPageSize());
+        Position after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        // one extra row tells whether another page follows
+        Mono<TransactionPage> page = readRouting.forUser(filter.userId())
+                .flatMap(client -> query(client, filter, after, size + 1)
+                        .map((row, meta) -> toView(row))
+                        .all()
+                        .collectList())
+                .map(rows -> {
+                    boolean hasMore = rows.size() > size;
+                    var transactions = hasMore ? rows.subList(0, size) : rows;
+                    TransactionView last = transactions.isEmpty() ? null : transactions.get(transactions.size() - 1);
+                    spans.tag("transactions.rows", transactions.size());
+                    return TransactionPage.builder()
+                            .userId(filter.userId())
+                            .transactions(transactions)
+                            .nextCursor(hasMore ? encodeCursor(new Position(last.date(), last.id())) : null)
+                            .hasMore(hasMore)
+                            .build();
+                });
+        return spans.mono("transactions.page", page);
+    }
+
+    /** All matching rows (after {@code cursor}, if given), emitted as the database cursor delivers them. */
+    public Flux<TransactionView> stream(Filter filter, String cursor) {
+        Position after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+        return spans.flux("transactions.stream", streams.limit(readRouting.forUser(filter.userId())
+                .flatMapMany(client -> rows(client, filter, after, properties.getStreamFetchSize()))));
+    }
+
+    // Unlimited query on a cursor of fetchSize rows per round trip; demand follows the subscriber
+    Flux<TransactionView> rows(DatabaseClient client, Filter filter, Position after, int fetchSize) {
+        return query(client, filter, after, null)
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map((row, meta) -> toView(row))
+                .all();
+    }
+
+    private DatabaseClient.GenericExecuteSpec query(DatabaseClient client, Filter filter, Position after, Integer limit) {
+        StringBuilder sql = new StringBuilder(COLUMNS);
+        Map<String, Object> binds = new LinkedHashMap<>();
+        binds.put("uid", filter.userId());
+        if (filter.accountId() != null) {
+            sql.append("   AND t.account_id = :accountId\n");
+            binds.put("accountId", filter.accountId());
+        }
+        if (filter.from() != null) {
+            sql.append("   AND t.date >= :from\n");
+            binds.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append("   AND t.date <= :to\n");
+            binds.put("to", filter.to());
+        }
+        if (filter.minAmount() != null) {
+            sql.append("   AND t.amount >= :minAmount\n");
+            binds.put("minAmount", filter.minAmount());
+        }
+        if (filter.maxAmount() != null) {
+            sql.append("   AND t.amount <= :maxAmount\n");
+            binds.put("maxAmount", filter.maxAmount());
+        }
+        if (filter.pending() != null) {
+            sql.append("   AND t.pending = :pending\n");
+            binds.put("pending", filter.pending());
+        }
+        if (after != null) {
+            sql.append("   AND (t.date, t.id) < (:afterDate, :afterId)\n");
+            binds.put("afterDate", after.date());
+            binds.put("afterId", after.id());
+        }
+        sql.append(" ORDER BY t.date DESC, t.id DESC\n");
+        if (limit != null) {
+            sql.append(" LIMIT :limit\n");
+            binds.put("limit", limit);
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        for (Map.Entry<String, Object> bind : binds.entrySet()) {
+            spec = spec.bind(bind.getKey(), bind.getValue());
+        }
+        return spec;
+    }
+
+    private static TransactionView toView(Row row) {
+        return TransactionView.builder()
+                .id(row.get("id", UUID.class))
+                .transactionId(row.get("transaction_id", String.class))
+                .accountId(row.get("account_id", UUID.class))
+                .amount(row.get("amount", Double.class))
+                .isoCurrencyCode(row.get("iso_currency_code", String.class))
+                .date(row.get("date", LocalDate.class))
+                .authorizedDate(row.get("authorized_date", LocalDate.class))
+                .name(row.get("name", String.class))
+                .merchantName(row.get("merchant_name", String.class))
+                .category(row.get("category", String.class))
+                .pending(row.get("pending", Boolean.class))
+                .build();
+    }
+
+    // ---------- Cursor ----------
+
+    // Opaque to clients: base64url("<date>|<id>")
+    static String encodeCursor(Position position) {
+        String raw = position.date() + "|" + position.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new Position(LocalDate.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
@@ -1,24 +1,22 @@
 package com.plaid_cash_snapshot.service;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.plaid_cash_snapshot.config.PlaidClientMetrics;
+import com.plaid_cash_snapshot.config.Spans;
 import com.plaid_cash_snapshot.dto.SyncRequest;
 import com.plaid_cash_snapshot.dto.SyncResponse;
-import com.plaid_cash_snapshot.model.Account;
 import com.plaid_cash_snapshot.model.Item;
-import com.plaid_cash_snapshot.model.Transaction;
 import com.plaid_cash_snapshot.plaid.dto.PlaidSyncResponse;
 import com.plaid_cash_snapshot.plaid.dto.PlaidTransaction;
-import com.plaid_cash_snapshot.repository.AccountRepository;
 import com.plaid_cash_snapshot.repository.ItemRepository;
-import com.plaid_cash_snapshot.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
@@ -33,8 +31,15 @@ import java.util.stream.Stream;
 public class TransactionSyncService {
 
     private final ItemRepository itemRepository;
-    private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    private final AccountDirectory accountDirectory;
+    private final TransactionWriteBuffer transactionWriteBuffer;
+    private final MerchantService merchantService;
+    private final PlaidRecurringCache plaidRecurringCache;
+    private final ItemSyncLeases itemSyncLeases;
+    private final ReadRouting readRouting;
+    private final PlaidClientMetrics plaidClientMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Spans spans;
 
     @Value("${plaid.base-url:https://sandbox.plaid.com}")
     private String plaidBaseUrl;
@@ -48,6 +53,7 @@ public class TransactionSyncService {
     private WebClient client() {
         return WebClient.builder()
                 .baseUrl(plaidBaseUrl)
+                .filter(plaidClientMetrics)
                 .build();
     }
 
@@ -57,10 +63,9 @@ public class TransactionSyncService {
 
         return itemRepository.findByUserId(userId)
                 .flatMap(item ->
-                        // Load all accounts for this item to map Plaid account_id -> accounts.id (UUID)
-                        accountRepository.findByItemId(item.getId())
-                                .collectMap(Account::getAccountId, Account::getId)
-                                .flatMap(accMap -> syncOneItem(http, item, accMap))
+                        // Plaid account_id -> accounts.id (UUID); seeded at link time, else loaded once
+                        accountDirectory.forItem(item.getId())
+                                .flatMap(accMap -> syncOneItem(http, item, accMap, SyncProgress.NONE))
                 )
                 .collectList()
                 .map(results -> {
@@ -78,29 +83,97 @@ public class TransactionSyncService {
                 });
     }
 
-    private Mono<SyncResponse.SyncResult> syncOneItem(WebClient http, Item item, Map<String, UUID> accountIdToUuid) {
+    /**
+     * Receives the running count of transactions written for an item after each page.
+     * The returned Mono is awaited before the next page is requested.
+     */
+    @FunctionalInterface
+    public interface SyncProgress {
+        SyncProgress NONE = total -> Mono.empty();
+
+        Mono<Void> pageSynced(int transactionsSoFar);
+    }
+
+    /** Syncs a single item (all pages), used by the background backfill job. */
+    public Mono<SyncResponse.SyncResult> syncItem(UUID itemId, SyncProgress progress) {
+        return itemRepository.findById(itemId)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Item not found: " + itemId)))
+                .flatMap(item -> syncItem(item, progress));
+    }
+
+    /** As syncItem(itemId, progress), for callers that already loaded the item. */
+    public Mono<SyncResponse.SyncResult> syncItem(Item item, SyncProgress progress) {
+        return accountDirectory.forItem(item.getId())
+                .flatMap(accMap -> syncOneItem(client(), item, accMap, progress));
+    }
+
+    /**
+     * Syncs one item under its lease so replicas never page the same item at once.
+     * If another node holds the lease the item is skipped: that node is already
+     * downloading the same pages. The lease is renewed after every page and the
+     * cursor write is fenced by its token; transaction upserts are idempotent.
+     */
+    private Mono<SyncResponse.SyncResult> syncOneItem(WebClient http, Item item, Map<String, UUID> accountIdToUuid,
+                                                      SyncProgress progress) {
+        Mono<SyncResponse.SyncResult> sync = Mono.usingWhen(
+                        itemSyncLeases.tryAcquire(item.getId()),
+                        // re-read under the lease: the previous holder may have advanced the cursor
+                        lease -> itemRepository.findById(item.getId())
+                                .flatMap(fresh -> syncLeased(http, fresh, accountIdToUuid, lease, progress)),
+                        itemSyncLeases::release,
+                        (lease, err) -> itemSyncLeases.release(lease),
+                        itemSyncLeases::release)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.info("Item {} is being synced by another node; skipping", item.getId());
+                    return SyncResponse.SyncResult.builder()
+                            .itemId(item.getItemId())
+                            .status(SyncResponse.SyncResult.SKIPPED_LOCKED)
+                            .build();
+                }));
+
+        // sync.item.duration{outcome=synced|skipped_locked|error}, inside a sync.item span
+        return spans.mono("sync.item", Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return sync
+                    .doOnSuccess(r -> {
+                        spans.tag("item.id", item.getId());
+                        spans.tag("sync.status", r.status());
+                        spans.tag("sync.transactions", r.transactionsSynced());
+                        sample.stop(meterRegistry.timer("sync.item.duration", "outcome", r.status()));
+                    })
+                    .doOnError(err -> sample.stop(meterRegistry.timer("sync.item.duration", "outcome", "error")));
+        }));
+    }
+
+    private Mono<SyncResponse.SyncResult> syncLeased(WebClient http, Item item, Map<String, UUID> accountIdToUuid,
+                                                     ItemSyncLeases.Lease lease, SyncProgress progress) {
         String accessToken = item.getAccessToken();
         String startingCursor = item.getCursor(); // may be null on first sync
+        SyncProgress renewing = total -> itemSyncLeases.renew(lease).then(progress.pageSynced(total));
 
         // Recursive page loop
-        return syncPage(http, accessToken, startingCursor, 0, null, accountIdToUuid, item)
-                .flatMap(finalState -> {
-                    // Update item cursor with the latest cursor we received
-                    Item updated = item.toBuilder()
-                            .cursor(finalState.latestCursor)
-                            .updatedAt(OffsetDateTime.now(ZoneOffset.UTC))
-                            .build();
-                    return itemRepository.save(updated)
-                            .thenReturn(SyncResponse.SyncResult.builder()
-                                    .itemId(item.getItemId())
-                                    .transactionsSynced(finalState.totalCount)
-                                    .cursor(finalState.latestCursor)
-                                    .build());
-                });
+        return syncPage(http, accessToken, startingCursor, 0, null, accountIdToUuid, item, renewing)
+                .flatMap(finalState ->
+                        // Update item cursor with the latest cursor we received, only if we still hold the lease
+                        itemSyncLeases.saveCursorFenced(lease, finalState.latestCursor, OffsetDateTime.now(ZoneOffset.UTC))
+                                .doOnSuccess(v -> {
+                                    // cached Plaid recurring streams are keyed by the old cursor
+                                    if (!Objects.equals(startingCursor, finalState.latestCursor)) {
+                                        plaidRecurringCache.invalidateItem(item.getId());
+                                    }
+                                })
+                                .thenReturn(SyncResponse.SyncResult.builder()
+                                        .itemId(item.getItemId())
+                                        .transactionsSynced(finalState.totalCount)
+                                        .cursor(finalState.latestCursor)
+                                        .status(SyncResponse.SyncResult.SYNCED)
+                                        .build()));
     }
 
     private record PageState(int totalCount, String latestCursor) {}
 
+    private record PageWritten(int saved, String nextCursor, boolean hasMore) {}
+
     private Mono<PageState> syncPage(
             WebClient http,
             String accessToken,
@@ -108,6 +181,33 @@ public class TransactionSyncService {
             int accumulated,
             String latestCursor,
             Map<String, UUID> accountIdToUuid,
+            Item item,
+            SyncProgress progress
+    ) {
+        // the span covers this page only; the next page is requested outside it
+        return spans.mono("sync.page", fetchAndWritePage(http, accessToken, cursor, accountIdToUuid, item))
+                .flatMap(page -> {
+                    int newTotal = accumulated + page.saved();
+                    String next = page.nextCursor();
+
+                    if (page.hasMore()) {
+                        // Continue with next page
+                        return progress.pageSynced(newTotal)
+                                .then(syncPage(http, accessToken, next, newTotal, next, accountIdToUuid, item, progress));
+                    } else {
+                        // Done for this item
+                        String finalCursor = (next != null ? next : latestCursor);
+                        return progress.pageSynced(newTotal)
+                                .thenReturn(new PageState(newTotal, finalCursor));
+                    }
+                });
+    }
+
+    private Mono<PageWritten> fetchAndWritePage(
+            WebClient http,
+            String accessToken,
+            String cursor,
+            Map<String, UUID> accountIdToUuid,
             Item item
     ) {
         Map<String, Object> body = new HashMap<>();
@@ -129,72 +229,52 @@ public class TransactionSyncService {
 
                     // combine added + modified
                     List<PlaidTransaction> toUpsert = Stream.concat(added.stream(), modified.stream()).toList();
+                    recordPage(added.size(), modified.size(), res.removed() == null ? 0 : res.removed().size());
+                    spans.tag("sync.rows", toUpsert.size());
 
                     OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
 
-                    // Upsert each transaction
-                    return Flux.fromIterable(toUpsert)
-                            .flatMap(pt -> upsertTransaction(pt, item, accountIdToUuid, now))
-                            .count()
-                            .flatMap(savedCount -> {
-                                int newTotal = accumulated + savedCount.intValue();
-                                String next = res.nextCursor();
-
-                                if (res.hasMore()) {
-                                    // Continue with next page
-                                    return syncPage(http, accessToken, next, newTotal, next, accountIdToUuid, item);
-                                } else {
-                                    // Done for this item
-                                    String finalCursor = (next != null ? next : latestCursor);
-                                    return Mono.just(new PageState(newTotal, finalCursor));
-                                }
-                            });
+                    // Normalize merchant names once per page and resolve their dictionary ids
+                    Set<String> merchantNames = new HashSet<>();
+                    for (PlaidTransaction pt : toUpsert) {
+                        if (pt.merchantName() != null) merchantNames.add(pt.merchantName());
+                    }
+
+                    // Upsert the whole page in one statement
+                    return merchantService.resolveIds(merchantNames)
+                            .flatMap(merchantIds -> transactionWriteBuffer.write(toRows(toUpsert, item, accountIdToUuid, merchantIds), now))
+                            .flatMap(n -> readRouting.markWritten(item.getUserId()).thenReturn(n))
+                            .map(savedCount -> new PageWritten(savedCount.intValue(), res.nextCursor(), res.hasMore()));
                 });
     }
 
-    private Mono<Transaction> upsertTransaction(
-            PlaidTransaction pt,
+    // sync.pages counts pages; sync.page.rows{change} is the per-page distribution of each kind of change
+    private void recordPage(int added, int modified, int removed) {
+        meterRegistry.counter("sync.pages").increment();
+        meterRegistry.summary("sync.page.rows", "change", "added").record(added);
+        meterRegistry.summary("sync.page.rows", "change", "modified").record(modified);
+        meterRegistry.summary("sync.page.rows", "change", "removed").record(removed);
+    }
+
+    private List<TransactionWriter.Row> toRows(
+            List<PlaidTransaction> txns,
             Item item,
             Map<String, UUID> accountIdToUuid,
-            OffsetDateTime now
+            Map<String, Integer> merchantIds
     ) {
-        UUID accountUuid = accountIdToUuid.get(pt.accountId());
-        if (accountUuid == null) {
-            // If account mapping is missing, skip gracefully.
-            log.warn("Missing account mapping for item {} plaidAccountId {}. Skipping txn {}.",
-                    item.getId(), pt.accountId(), pt.transactionId());
-            return Mono.empty();
+        List<TransactionWriter.Row> rows = new ArrayList<>(txns.size());
+        for (PlaidTransaction pt : txns) {
+            UUID accountUuid = accountIdToUuid.get(pt.accountId());
+            if (accountUuid == null) {
+                // If account mapping is missing, skip gracefully.
+                log.warn("Missing account mapping for item {} plaidAccountId {}. Skipping txn {}.",
+                        item.getId(), pt.accountId(), pt.transactionId());
+                continue;
+            }
+            Integer merchantId = pt.merchantName() == null ? null : merchantIds.get(pt.merchantName());
+            rows.add(TransactionWriter.Row.of(pt, item.getUserId(), accountUuid, merchantId));
         }
-
-        return transactionRepository.findByTransactionId(pt.transactionId())
-                .defaultIfEmpty(Transaction.builder()
-                        .userId(item.getUserId())
-                        .accountId(accountUuid)
-                        .transactionId(pt.transactionId())
-                        .createdAt(now)
-                        .build())
-                .flatMap(existingOrNew -> {
-                    Transaction toSave = existingOrNew.toBuilder()
-                            .amount(pt.amount())
-                            .isoCurrencyCode(pt.isoCurrencyCode())
-                            .unofficialCurrencyCode(pt.unofficialCurrencyCode())
-                            .date(pt.date())
-                            .authorizedDate(pt.authorizedDate())
-                            .name(pt.name())
-                            .merchantName(pt.merchantName())
-                            .category(toJsonString(pt.category()))     // <-- serialize
-                            .subcategory(toJsonString(pt.category()))  // or split if you want
-                            .accountOwner(pt.accountOwner())
-                            .pending(Boolean.TRUE.equals(pt.pending()))
-                            .transactionType(pt.transactionType())
-                            .updatedAt(now)
-                            .build();
-                    return transactionRepository.save(toSave);
-                });
-    }
-
-    private static String toJsonString(Object nodeOrNull) {
-        return nodeOrNull == null ? null : nodeOrNull.toString(); // Jackson records already give proper toString() JSON
+        return rows;
     }
 }
 
@@ -0,0 +1,155 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.WriteBehindProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional write-behind stage in front of {@link TransactionWriter}. Rows from
+ * concurrent syncs are coalesced into one upsert per max-batch-rows or max-delay,
+ * whichever comes first. Each caller's Mono completes only once all of its own rows
+ * are committed, so sync results stay truthful. When disabled, writes go straight through.
+ *
+ * Callers hand over one request each through a Flux.create sink, which is safe for
+ * concurrent producers without spinning. If the pipeline itself fails, the requests
+ * in it are failed and a new pipeline takes over.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class TransactionWriteBuffer {
+
+    private final TransactionWriter writer;
+    private final WriteBehindProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Request> pending = ConcurrentHashMap.newKeySet();
+    private volatile FluxSink<Request> requests;
+    private volatile Disposable pipeline;
+    private volatile boolean stopping;
+
+    /** One caller's rows; completes when the last of them is written. */
+    private static final class Request {
+        final List<Entry> entries;
+        final Sinks.One<Long> done = Sinks.one();
+        final AtomicInteger remaining;
+
+        Request(List<TransactionWriter.Row> rows) {
+            this.entries = new ArrayList<>(rows.size());
+            for (TransactionWriter.Row row : rows) entries.add(new Entry(row, this));
+            this.remaining = new AtomicInteger(rows.size());
+        }
+    }
+
+    private record Entry(TransactionWriter.Row row, Request request) {}
+
+    @PostConstruct
+    void start() {
+        if (!props.isEnabled()) return;
+        DistributionSummary batchRows = DistributionSummary.builder("sync.write_behind.batch.rows")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        startPipeline(batchRows);
+    }
+
+    private void startPipeline(DistributionSummary batchRows) {
+        pipeline = Flux.<Request>create(sink -> requests = sink, FluxSink.OverflowStrategy.BUFFER)
+                .concatMapIterable(r -> r.entries)
+                // fair backpressure: the timer never emits a batch nobody has requested
+                .bufferTimeout(props.getMaxBatchRows(), props.getMaxDelay(), true)
+                .flatMap(batch -> {
+                    batchRows.record(batch.size());
+                    return flush(batch);
+                }, props.getConcurrency())
+                .subscribe(null, err -> {
+                    if (stopping) return;
+                    log.error("Write-behind pipeline failed; failing {} pending write(s) and restarting", pending.size(), err);
+                    meterRegistry.counter("sync.write_behind.restarts").increment();
+                    // new writes go to the new pipeline before the old one's requests are failed
+                    startPipeline(batchRows);
+                    for (Request r : pending) fail(r, err);
+                });
+    }
+
+    /** Writes {@code rows}; returns the number of rows written (one per transaction) once they are durable. */
+    public Mono<Long> write(List<TransactionWriter.Row> rows, OffsetDateTime now) {
+        if (!props.isEnabled() || pipeline == null) return writer.upsert(rows, now);
+        // the same count the direct upsert reports: duplicates of a transaction are written once
+        List<TransactionWriter.Row> distinct = new ArrayList<>(TransactionWriter.lastPerTransaction(rows));
+        if (distinct.isEmpty()) return Mono.just(0L);
+        return Mono.defer(() -> {
+            Request request = new Request(distinct);
+            pending.add(request);
+            requests.next(request);
+            return request.done.asMono();
+        });
+    }
+
+    private Mono<Void> flush(List<Entry> batch) {
+        List<TransactionWriter.Row> rows = new ArrayList<>(batch.size());
+        for (Entry e : batch) rows.add(e.row());
+        return writer.upsert(rows, OffsetDateTime.now(ZoneOffset.UTC))
+                .doOnSuccess(n -> byRequest(batch).forEach((r, part) -> complete(r, part.size())))
+                .then()
+                .onErrorResume(err -> {
+                    // one caller's bad row must not fail the others: retry each caller's part on its own
+                    log.warn("Write-behind batch of {} rows failed, retrying per caller: {}", batch.size(), err.toString());
+                    return Flux.fromIterable(byRequest(batch).entrySet())
+                            .concatMap(part -> writer.upsert(part.getValue(), OffsetDateTime.now(ZoneOffset.UTC))
+                                    .doOnSuccess(n -> complete(part.getKey(), part.getValue().size()))
+                                    .onErrorResume(partErr -> {
+                                        fail(part.getKey(), partErr);
+                                        return Mono.empty();
+                                    }))
+                            .then();
+                });
+    }
+
+    private static Map<Request, List<TransactionWriter.Row>> byRequest(List<Entry> batch) {
+        Map<Request, List<TransactionWriter.Row>> out = new LinkedHashMap<>();
+        for (Entry e : batch) out.computeIfAbsent(e.request(), k -> new ArrayList<>()).add(e.row());
+        return out;
+    }
+
+    private void complete(Request r, int written) {
+        if (r.remaining.addAndGet(-written) == 0) {
+            pending.remove(r);
+            r.done.tryEmitValue((long) r.entries.size());
+        }
+    }
+
+    private void fail(Request r, Throwable err) {
+        pending.remove(r);
+        r.done.tryEmitError(err);
+    }
+
+    /** Flushes what is buffered (bufferTimeout emits the partial batch on complete). */
+    @PreDestroy
+    void stop() {
+        if (pipeline == null) return;
+        stopping = true;
+        requests.complete();
+    }
+}
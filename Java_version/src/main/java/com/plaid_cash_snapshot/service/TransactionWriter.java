@@ -0,0 +1,193 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.Spans;
+import com.plaid_cash_snapshot.plaid.dto.PlaidTransaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes synced transactions with one multi-row upsert on (user_id, transaction_id)
+ * per batch, on the bulk connection pool.
+ */
+@Service
+public class TransactionWriter {
+
+    private final DatabaseClient bulkDb;
+    private final MeterRegistry meterRegistry;
+    private final Spans spans;
+
+    public TransactionWriter(@Qualifier("bulkDatabaseClient") DatabaseClient bulkDb, MeterRegistry meterRegistry,
+                             Spans spans) {
+        this.bulkDb = bulkDb;
+        this.meterRegistry = meterRegistry;
+        this.spans = spans;
+    }
+
+    /** One transactions row, already resolved to local account and merchant ids. */
+    public record Row(
+            UUID userId,
+            UUID accountId,
+            String transactionId,
+            Double amount,
+            String isoCurrencyCode,
+            String unofficialCurrencyCode,
+            LocalDate date,
+            LocalDate authorizedDate,
+            String name,
+            String merchantName,
+            Integer merchantId,
+            String category,
+            String accountOwner,
+            boolean pending,
+            String transactionType
+    ) {
+        public static Row of(PlaidTransaction pt, UUID userId, UUID accountId, Integer merchantId) {
+            return new Row(
+                    userId,
+                    accountId,
+                    pt.transactionId(),
+                    pt.amount(),
+                    pt.isoCurrencyCode(),
+                    pt.unofficialCurrencyCode(),
+                    pt.date(),
+                    pt.authorizedDate(),
+                    pt.name(),
+                    pt.merchantName(),
+                    merchantId,
+                    pt.category() == null ? null : pt.category().toString(), // Jackson nodes print as JSON
+                    pt.accountOwner(),
+                    Boolean.TRUE.equals(pt.pending()),
+                    pt.transactionType()
+            );
+        }
+    }
+
+    /**
+     * Upserts {@code rows} and returns how many were written. A (user_id, transaction_id)
+     * that appears more than once keeps its last row, since one INSERT .. ON CONFLICT
+     * cannot update the same row twice. user_id, account_id and created_at are kept
+     * on update, as before.
+     */
+    public Mono<Long> upsert(Collection<Row> rows, OffsetDateTime now) {
+        if (rows.isEmpty()) return Mono.just(0L);
+
+        Collection<Row> distinct = lastPerTransaction(rows);
+
+        int n = distinct.size();
+        String[] userIds = new String[n];
+        String[] accountIds = new String[n];
+        String[] transactionIds = new String[n];
+        Double[] amounts = new Double[n];
+        String[] isoCurrencies = new String[n];
+        String[] unofficialCurrencies = new String[n];
+        String[] dates = new String[n];
+        String[] authorizedDates = new String[n];
+        String[] names = new String[n];
+        String[] merchantNames = new String[n];
+        Integer[] merchantIds = new Integer[n];
+        String[] categories = new String[n];
+        String[] accountOwners = new String[n];
+        Boolean[] pendings = new Boolean[n];
+        String[] transactionTypes = new String[n];
+        int i = 0;
+        for (Row r : distinct) {
+            userIds[i] = r.userId().toString();
+            accountIds[i] = r.accountId().toString();
+            transactionIds[i] = r.transactionId();
+            amounts[i] = r.amount();
+            isoCurrencies[i] = r.isoCurrencyCode();
+            unofficialCurrencies[i] = r.unofficialCurrencyCode();
+            dates[i] = r.date() == null ? null : r.date().toString();
+            authorizedDates[i] = r.authorizedDate() == null ? null : r.authorizedDate().toString();
+            names[i] = r.name();
+            merchantNames[i] = r.merchantName();
+            merchantIds[i] = r.merchantId();
+            categories[i] = r.category();
+            accountOwners[i] = r.accountOwner();
+            pendings[i] = r.pending();
+            transactionTypes[i] = r.transactionType();
+            i++;
+        }
+
+        meterRegistry.summary("db.transactions.upsert.rows").record(n);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return spans.mono("db.batch", bulkDb.sql("""
+                        INSERT INTO transactions
+                          (user_id, account_id, transaction_id, amount, iso_currency_code, unofficial_currency_code,
+                           date, authorized_date, name, merchant_name, merchant_id, category, subcategory,
+                           account_owner, pending, transaction_type, created_at, updated_at)
+                        SELECT t.user_id, t.account_id, t.transaction_id, t.amount, t.iso_currency_code,
+                               t.unofficial_currency_code, t.date, t.authorized_date, t.name, t.merchant_name,
+                               t.merchant_id, CAST(t.category AS jsonb), CAST(t.category AS jsonb),
+                               t.account_owner, t.pending, t.transaction_type, :now, :now
+                          FROM unnest(CAST(:userIds AS uuid[]), CAST(:accountIds AS uuid[]), CAST(:transactionIds AS text[]),
+                                      CAST(:amounts AS numeric[]), CAST(:isoCurrencies AS text[]),
+                                      CAST(:unofficialCurrencies AS text[]), CAST(:dates AS date[]),
+                                      CAST(:authorizedDates AS date[]), CAST(:names AS text[]),
+                                      CAST(:merchantNames AS text[]), CAST(:merchantIds AS integer[]),
+                                      CAST(:categories AS text[]), CAST(:accountOwners AS text[]),
+                                      CAST(:pendings AS boolean[]), CAST(:transactionTypes AS text[]))
+                               AS t(user_id, account_id, transaction_id, amount, iso_currency_code, unofficial_currency_code,
+                                    date, authorized_date, name, merchant_name, merchant_id, category,
+                                    account_owner, pending, transaction_type)
+                        ON CONFLICT (user_id, transaction_id)
+                        DO UPDATE SET
+                            amount                   = EXCLUDED.amount,
+                            iso_currency_code        = EXCLUDED.iso_currency_code,
+                            unofficial_currency_code = EXCLUDED.unofficial_currency_code,
+                            date                     = EXCLUDED.date,
+                            authorized_date          = EXCLUDED.authorized_date,
+                            name                     = EXCLUDED.name,
+                            merchant_name            = EXCLUDED.merchant_name,
+                            merchant_id              = EXCLUDED.merchant_id,
+                            category                 = EXCLUDED.category,
+                            subcategory              = EXCLUDED.subcategory,
+                            account_owner            = EXCLUDED.account_owner,
+                            pending                  = EXCLUDED.pending,
+                            transaction_type         = EXCLUDED.transaction_type,
+                            updated_at               = EXCLUDED.updated_at
+                        """)
+                .bind("now", now)
+                .bind("userIds", userIds)
+                .bind("accountIds", accountIds)
+                .bind("transactionIds", transactionIds)
+                .bind("amounts", amounts)
+                .bind("isoCurrencies", isoCurrencies)
+                .bind("unofficialCurrencies", unofficialCurrencies)
+                .bind("dates", dates)
+                .bind("authorizedDates", authorizedDates)
+                .bind("names", names)
+                .bind("merchantNames", merchantNames)
+                .bind("merchantIds", merchantIds)
+                .bind("categories", categories)
+                .bind("accountOwners", accountOwners)
+                .bind("pendings", pendings)
+                .bind("transactionTypes", transactionTypes)
+                .fetch()
+                .rowsUpdated()
+                .doOnSuccess(count -> {
+                    spans.tag("db.rows", n);
+                    sample.stop(meterRegistry.timer("db.transactions.upsert", "outcome", "success"));
+                })
+                .doOnError(err -> sample.stop(meterRegistry.timer("db.transactions.upsert", "outcome", "error"))),
+                "table", "transactions");
+    }
+
+    /** The rows an upsert actually writes: the last one per (user_id, transaction_id), in first-seen order. */
+    static Collection<Row> lastPerTransaction(Collection<Row> rows) {
+        Map<String, Row> byId = new LinkedHashMap<>();
+        for (Row r : rows) byId.put(r.userId() + "/" + r.transactionId(), r);
+        return byId.values();
+    }
+}
@@ -0,0 +1,123 @@
+-- Hash-partition transactions by user_id. Every read and write of transactions is
+-- scoped to one user, so each statement touches a single partition.
+-- Unique keys on a partitioned table must include the partition key: the primary key
+-- becomes (id, user_id) and transaction_id is unique per user, which is what the
+-- sync upsert now targets (ON CONFLICT (user_id, transaction_id)).
+-- The single-column indexes on user_id, date, amount and merchant_name are replaced
+-- by composites matching the access paths: per-user date ranges and per-account history.
+
+-- The view and trigger reference the table; recreated below
+DROP VIEW IF EXISTS recurring_streams_v;
+DROP TRIGGER IF EXISTS update_transactions_updated_at ON transactions;
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER TABLE transactions_legacy RENAME CONSTRAINT transactions_pkey TO transactions_legacy_pkey;
+ALTER TABLE transactions_legacy RENAME CONSTRAINT transactions_transaction_id_key TO transactions_legacy_transaction_id_key;
+DROP INDEX IF EXISTS idx_transactions_user_id;
+DROP INDEX IF EXISTS idx_transactions_account_id;
+DROP INDEX IF EXISTS idx_transactions_date;
+DROP INDEX IF EXISTS idx_transactions_merchant;
+DROP INDEX IF EXISTS idx_transactions_amount;
+DROP INDEX IF EXISTS idx_transactions_user_merchant_id;
+
+CREATE TABLE transactions (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    account_id UUID NOT NULL REFERENCES accounts(id) ON DELETE CASCADE,
+    transaction_id VARCHAR(255) NOT NULL,
+    amount DECIMAL(12, 2) NOT NULL,
+    iso_currency_code VARCHAR(3) DEFAULT 'USD',
+    unofficial_currency_code VARCHAR(10),
+    date DATE NOT NULL,
+    authorized_date DATE,
+    name VARCHAR(500) NOT NULL,
+    merchant_name VARCHAR(255),
+    merchant_id INTEGER REFERENCES merchants(id),
+    category JSONB, -- Plaid categories as JSON array
+    subcategory JSONB, -- Plaid subcategories
+    account_owner VARCHAR(255),
+    pending BOOLEAN DEFAULT FALSE,
+    transaction_type VARCHAR(50), -- 'digital', 'place', 'special', 'unresolved'
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT transactions_pkey PRIMARY KEY (id, user_id),
+    CONSTRAINT uq_transactions_user_transaction_id UNIQUE (user_id, transaction_id)
+) PARTITION BY HASH (user_id);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE transactions_p%s PARTITION OF transactions FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       lpad(i::text, 2, '0'), i);
+    END LOOP;
+END $$;
+
+-- Move existing rows (ids are kept)
+INSERT INTO transactions (id, user_id, account_id, transaction_id, amount, iso_currency_code, unofficial_currency_code,
+       date, authorized_date, name, merchant_name, merchant_id, category, subcategory,
+       account_owner, pending, transaction_type, created_at, updated_at)
+SELECT id, user_id, account_id, transaction_id, amount, iso_currency_code, unofficial_currency_code,
+       date, authorized_date, name, merchant_name, merchant_id, category, subcategory,
+       account_owner, pending, transaction_type, created_at, updated_at
+  FROM transactions_legacy;
+
+DROP TABLE transactions_legacy;
+
+-- Built after the copy; cheaper than maintaining them row by row
+CREATE INDEX idx_transactions_user_date ON transactions(user_id, date);
+CREATE INDEX idx_transactions_account_date ON transactions(account_id, date);
+
+CREATE TRIGGER update_transactions_updated_at BEFORE UPDATE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- Recurring Streams View (unchanged)
+CREATE OR REPLACE VIEW recurring_streams_v AS
+WITH tx AS (
+    SELECT
+        user_id,
+        merchant_name AS merchant,
+        amount,
+        date,
+        (date - LAG(date) OVER (PARTITION BY user_id, merchant_name ORDER BY date))::int AS gap_days
+    FROM transactions
+    WHERE merchant_name IS NOT NULL
+      AND merchant_name <> ''
+      AND pending = false
+),
+agg AS (
+    SELECT
+        user_id,
+        merchant,
+        COUNT(*) AS occurrences,
+        ROUND(AVG(amount)::numeric, 2) AS avg_amount,
+        MIN(date) AS first_date,
+        MAX(date) AS last_date,
+        ROUND(AVG(gap_days)::numeric, 0) AS avg_frequency_days,
+        STDDEV_POP(gap_days) AS gap_stddev
+    FROM tx
+    WHERE gap_days IS NOT NULL
+    GROUP BY user_id, merchant
+    HAVING COUNT(*) >= 2
+)
+SELECT
+    user_id,
+    CASE WHEN avg_amount > 0 THEN 'inflow' ELSE 'outflow' END AS direction,
+    merchant,
+    CASE 
+        WHEN avg_frequency_days <= 8  THEN 'weekly'
+        WHEN avg_frequency_days <= 16 THEN 'biweekly'
+        WHEN avg_frequency_days <= 35 THEN 'monthly'
+        WHEN avg_frequency_days <= 100 THEN 'quarterly'
+        ELSE 'irregular'
+    END AS frequency,
+    ABS(avg_amount) AS avg_amount,
+    occurrences,
+    last_date,
+    (last_date + (COALESCE(avg_frequency_days, 30)::int * INTERVAL '1 day'))::date AS next_estimated_date,
+    LEAST(
+      1.0,
+      0.5
+      + (occurrences / 10.0)
+      - (COALESCE(gap_stddev, 0) / NULLIF(avg_frequency_days, 0) * 0.2)
+    )::numeric(3,2) AS confidence
+FROM agg;
@@ -0,0 +1,6 @@
+-- Keyset pagination over a user's transactions orders by (date, id) newest first.
+-- Extending the per-user date index with id lets a page be one index range scan from
+-- the previous page's last (date, id), however deep the page; the old index is a
+-- prefix of the new one and is dropped.
+CREATE INDEX IF NOT EXISTS idx_transactions_user_date_id ON transactions(user_id, date, id);
+DROP INDEX IF EXISTS idx_transactions_user_date;
@@ -0,0 +1,8 @@
+-- Read-your-writes across nodes: after a user's data is written, the primary's WAL insert
+-- position is recorded here. ReadRouting sends that user's reads to the replica only once
+-- the replica has replayed past it, whichever node handled the write.
+CREATE TABLE IF NOT EXISTS user_last_write (
+    user_id    uuid        PRIMARY KEY,
+    lsn        pg_lsn      NOT NULL,
+    written_at timestamptz NOT NULL DEFAULT now()
+);
@@ -0,0 +1,62 @@
+package com.plaid_cash_snapshot.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlaidClientMetricsTest {
+
+	@Test
+	void successfulRequestIdIsTaggedOnThePlaidCallSpan() {
+		List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+		ObservationRegistry observations = ObservationRegistry.create();
+		observations.observationConfig().observationHandler(new ObservationHandler<>() {
+			@Override
+			public void onStop(Observation.Context context) {
+				stopped.add(context);
+			}
+
+			@Override
+			public boolean supportsContext(Observation.Context context) {
+				return true;
+			}
+		});
+		// as spring.reactor.context-propagation=auto does in the application
+		ObservationThreadLocalAccessor.getInstance().setObservationRegistry(observations);
+		Hooks.enableAutomaticContextPropagation();
+		PlaidClientMetrics metrics = new PlaidClientMetrics(new SimpleMeterRegistry(), new Spans(observations));
+
+		String json = "{\"accounts\": [], \"request_id\" : \"m8MDnv9okwxFNBV\"}";
+		ClientRequest request = ClientRequest.create(HttpMethod.POST, URI.create("http://plaid.test/accounts/get")).build();
+		String body;
+		try {
+			body = metrics.filter(request, r -> Mono.just(ClientResponse.create(HttpStatus.OK).body(json).build()))
+					.flatMap(response -> response.bodyToMono(String.class))
+					.block();
+		} finally {
+			Hooks.disableAutomaticContextPropagation();
+		}
+
+		assertThat(body).isEqualTo(json);
+		assertThat(stopped).singleElement()
+				.satisfies(span -> assertThat(span.getHighCardinalityKeyValues())
+						.contains(KeyValue.of("plaid.request_id", "m8MDnv9okwxFNBV")));
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.plaid_cash_snapshot.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementMetricsTest {
+
+	@Test
+	void fingerprintIgnoresLiteralsAndLayout() {
+		StatementMetrics.Fingerprint a = StatementMetrics.fingerprint("""
+				SELECT user_id, net_cash
+				  FROM cash_snapshot_v
+				 WHERE user_id = $1 AND kind = 'it''s' LIMIT 10
+				""");
+		StatementMetrics.Fingerprint b = StatementMetrics.fingerprint(
+				"select user_id, net_cash from cash_snapshot_v where user_id = $1 and kind = 'other' limit 50");
+
+		assertThat(a).isEqualTo(b);
+		assertThat(a.sql()).isEqualTo("select user_id, net_cash from cash_snapshot_v where user_id = $1 and kind = ? limit ?");
+		assertThat(a.tag()).startsWith("select cash_snapshot_v ");
+	}
+
+	@Test
+	void tagsByVerbAndFirstTable() {
+		assertThat(StatementMetrics.fingerprint("INSERT INTO transactions (a) SELECT * FROM unnest(CAST($1 AS text[]))").tag())
+				.startsWith("insert transactions ");
+		assertThat(StatementMetrics.fingerprint("UPDATE jobs SET attempts = attempts + 1 WHERE id = $2").tag())
+				.startsWith("update jobs ");
+		assertThat(StatementMetrics.fingerprint("SELECT 1").tag()).startsWith("select ");
+	}
+
+}
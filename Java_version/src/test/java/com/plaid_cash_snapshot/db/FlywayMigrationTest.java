@@ -0,0 +1,89 @@
+package com.plaid_cash_snapshot.db;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class FlywayMigrationTest {
+
+	@Container
+	static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	@Test
+	void partitioningKeepsExistingTransactions() throws SQLException {
+		flyway("1").migrate();
+
+		UUID userA = UUID.randomUUID();
+		UUID userB = UUID.randomUUID();
+		try (Connection c = connect(); Statement st = c.createStatement()) {
+			for (UUID user : new UUID[]{userA, userB}) {
+				st.execute("INSERT INTO users (id) VALUES ('" + user + "')");
+				st.execute("INSERT INTO items (id, user_id, item_id, access_token) VALUES ('" + user + "', '" + user
+						+ "', 'item-" + user + "', 'token')");
+				st.execute("INSERT INTO accounts (id, user_id, item_id, account_id, name, type, subtype) VALUES ('" + user
+						+ "', '" + user + "', '" + user + "', 'acc-" + user + "', 'Checking', 'depository', 'checking')");
+				st.execute("""
+						INSERT INTO transactions (user_id, account_id, transaction_id, amount, date, name, merchant_name, category)
+						SELECT '%1$s', '%1$s', 'txn-%1$s-' || g, 15.49, DATE '2025-01-01' + g * 30, 'Netflix', 'Netflix', '["Service"]'
+						  FROM generate_series(1, 50) g
+						""".formatted(user));
+			}
+		}
+
+		flyway(null).migrate();
+
+		try (Connection c = connect(); Statement st = c.createStatement()) {
+			assertThat(scalar(st, "SELECT relkind::text FROM pg_class WHERE relname = 'transactions'")).isEqualTo("p");
+			assertThat(scalar(st, "SELECT count(*) FROM pg_inherits WHERE inhparent = 'transactions'::regclass")).isEqualTo("16");
+			assertThat(scalar(st, "SELECT count(*) FROM transactions")).isEqualTo("100");
+			assertThat(scalar(st, "SELECT count(*) FROM transactions WHERE user_id = '" + userA + "'")).isEqualTo("50");
+			assertThat(scalar(st, "SELECT category::text FROM transactions WHERE transaction_id = 'txn-" + userB + "-7'"))
+					.isEqualTo("[\"Service\"]");
+			assertThat(scalar(st, "SELECT to_regclass('transactions_legacy')")).isNull();
+			assertThat(scalar(st, "SELECT to_regclass('idx_transactions_amount')")).isNull();
+			assertThat(scalar(st, "SELECT to_regclass('idx_transactions_user_date_id')")).isNotNull();
+			assertThat(scalar(st, "SELECT to_regclass('user_last_write')")).isNotNull();
+
+			// the sync upsert's conflict target
+			st.execute("""
+					INSERT INTO transactions (user_id, account_id, transaction_id, amount, date, name)
+					VALUES ('%1$s', '%1$s', 'txn-%1$s-1', 20.00, DATE '2025-01-31', 'Netflix')
+					ON CONFLICT (user_id, transaction_id) DO UPDATE SET amount = EXCLUDED.amount
+					""".formatted(userA));
+			assertThat(scalar(st, "SELECT amount FROM transactions WHERE transaction_id = 'txn-" + userA + "-1'"))
+					.isEqualTo("20.00");
+			assertThat(scalar(st, "SELECT count(*) FROM recurring_streams_v WHERE user_id = '" + userA + "'")).isEqualTo("1");
+		}
+	}
+
+	private static Flyway flyway(String target) {
+		var config = Flyway.configure()
+				.dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+		if (target != null) config.target(target);
+		return config.load();
+	}
+
+	private static Connection connect() throws SQLException {
+		return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+	}
+
+	private static String scalar(Statement st, String sql) throws SQLException {
+		try (ResultSet rs = st.executeQuery(sql)) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.plaid_cash_snapshot.load;
+
+import com.plaid_cash_snapshot.PlaidCashSnapshotApplication;
+import com.plaid_cash_snapshot.plaid.FakePlaidServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end load run on one machine: FakePlaidServer for Plaid, a throwaway Postgres
+ * (Testcontainers, or the configured one with --postgres=local), the app booted in-process
+ * against both, and LinkController driven over HTTP at a fixed concurrency.
+ *
+ *   mvn -Pload test-compile exec:exec -Dload.args="--users=50 --concurrency=32 --transactions=5000"
+ *
+ * Scenarios run in the order given: link and sync make one call per user (sync is the
+ * initial full download), summary / recurring / dashboard / resync make --requests calls round-robin
+ * over the users, and bulk-sync is a single /sync/bulk call for all users at --concurrency. Pass --app-url to drive an already running app instead; it must have
+ * plaid.base-url pointing at a stand-in started with the same --plaid-port.
+ */
+public final class LoadHarness {
+
+	private static final List<String> DEFAULT_SCENARIOS = List.of("link", "sync", "summary", "resync");
+
+	public static void main(String[] argv) {
+		Map<String, String> args = parse(argv);
+		int users = Integer.parseInt(args.getOrDefault("users", "20"));
+		int concurrency = Integer.parseInt(args.getOrDefault("concurrency", "16"));
+		int requests = Integer.parseInt(args.getOrDefault("requests", "1000"));
+		List<String> scenarios = args.containsKey("scenarios")
+				? Arrays.asList(args.get("scenarios").split(","))
+				: DEFAULT_SCENARIOS;
+
+		FakePlaidServer.Options plaidOptions = FakePlaidServer.Options.builder()
+				.port(Integer.parseInt(args.getOrDefault("plaid-port", "0")))
+				.latency(Duration.ofMillis(Long.parseLong(args.getOrDefault("latency-ms", "50"))))
+				.latencyJitter(Duration.ofMillis(Long.parseLong(args.getOrDefault("jitter-ms", "20"))))
+				.errorRate(Double.parseDouble(args.getOrDefault("error-rate", "0")))
+				.rateLimitRate(Double.parseDouble(args.getOrDefault("rate-limit-rate", "0")))
+				.transactionsPerItem(Integer.parseInt(args.getOrDefault("transactions", "2000")))
+				.syncPageSize(Integer.parseInt(args.getOrDefault("page-size", "500")))
+				.merchants(Integer.parseInt(args.getOrDefault("merchants", "200")))
+				.build();
+
+		PostgreSQLContainer<?> postgres = null;
+		ConfigurableApplicationContext app = null;
+		try (FakePlaidServer plaid = FakePlaidServer.start(plaidOptions)) {
+			String appUrl = args.get("app-url");
+			if (appUrl == null) {
+				Map<String, Object> props = new HashMap<>();
+				props.put("server.port", "0");
+				props.put("plaid.base-url", plaid.baseUrl());
+				props.put("app.jobs.enabled", "false"); // the sync scenario measures the initial download itself
+				props.put("app.recurring.precompute.enabled", "false");
+				props.put("management.tracing.sampling.probability", args.getOrDefault("trace-sampling", "0"));
+				if (!"local".equals(args.get("postgres"))) {
+					postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+					postgres.start();
+					String r2dbc = "r2dbc:postgresql://%s:%d/%s".formatted(postgres.getHost(),
+							postgres.getFirstMappedPort(), postgres.getDatabaseName());
+					props.put("spring.r2dbc.url", r2dbc);
+					props.put("spring.r2dbc.username", postgres.getUsername());
+					props.put("spring.r2dbc.password", postgres.getPassword());
+					props.put("spring.flyway.url", postgres.getJdbcUrl());
+					props.put("spring.flyway.user", postgres.getUsername());
+					props.put("spring.flyway.password", postgres.getPassword());
+				}
+				app = new SpringApplicationBuilder(PlaidCashSnapshotApplication.class).properties(props).run();
+				appUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+			}
+
+			WebClient http = client(appUrl, concurrency);
+			List<UUID> userIds = IntStream.range(0, users).mapToObj(i -> UUID.randomUUID()).toList();
+
+			System.out.printf("%nLoad run: %d users, concurrency %d, Plaid latency %s +%s, %d txns/item%n%n",
+					users, concurrency, plaidOptions.getLatency(), plaidOptions.getLatencyJitter(),
+					plaidOptions.getTransactionsPerItem());
+			System.out.println(Result.HEADER);
+			for (String scenario : scenarios) {
+				Result result = switch (scenario.trim()) {
+					case "link" -> run("link", users, concurrency, i -> link(http, userIds.get(i)));
+					case "sync" -> run("sync", users, concurrency, i -> sync(http, userIds.get(i)));
+					case "resync" -> run("resync", requests, concurrency, i -> sync(http, userIds.get(i % users)));
+					case "bulk-sync" -> run("bulk-sync", 1, 1, i -> bulkSync(http, userIds, concurrency));
+					case "summary" -> run("summary", requests, concurrency, i ->
+							get(http, "/api/v1/summary?user_id=" + userIds.get(i % users)));
+					case "recurring" -> run("recurring", requests, concurrency, i ->
+							get(http, "/api/v1/recurring?type=outflow&user_id=" + userIds.get(i % users)));
+					case "dashboard" -> run("dashboard", requests, concurrency, i ->
+							get(http, "/api/v1/dashboard?user_id=" + userIds.get(i % users)));
+					default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+				};
+				System.out.println(result);
+			}
+			System.out.printf("%nPlaid stand-in calls: %s%n", plaid.calls());
+		} finally {
+			if (app != null) app.close();
+			if (postgres != null) postgres.stop();
+		}
+	}
+
+	// ---------- Calls (true = 2xx) ----------
+
+	private static Mono<Boolean> link(WebClient http, UUID userId) {
+		return post(http, "/api/v1/link-token", Map.of("userId", userId.toString()))
+				.filter(ok -> ok)
+				.flatMap(ok -> post(http, "/api/v1/exchange",
+						Map.of("public_token", "public-stub-" + userId, "user_id", userId.toString())))
+				.defaultIfEmpty(false);
+	}
+
+	private static Mono<Boolean> sync(WebClient http, UUID userId) {
+		return post(http, "/api/v1/sync", Map.of("user_id", userId.toString()));
+	}
+
+	// one request for every user; true when the summary line reports no failed items
+	private static Mono<Boolean> bulkSync(WebClient http, List<UUID> userIds, int concurrency) {
+		return http.post().uri("/api/v1/sync/bulk")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.bodyValue(Map.of("user_ids", userIds, "concurrency", concurrency))
+				.retrieve()
+				.bodyToFlux(Map.class)
+				.last()
+				.map(line -> line.get("summary") instanceof Map<?, ?> summary
+						&& Integer.valueOf(0).equals(summary.get("failed")));
+	}
+
+	private static Mono<Boolean> post(WebClient http, String path, Object body) {
+		return http.post().uri(path).bodyValue(body)
+				.exchangeToMono(res -> res.releaseBody().thenReturn(res.statusCode().is2xxSuccessful()));
+	}
+
+	private static Mono<Boolean> get(WebClient http, String path) {
+		return http.get().uri(path)
+				.exchangeToMono(res -> res.releaseBody().thenReturn(res.statusCode().is2xxSuccessful()));
+	}
+
+	// ---------- Driver ----------
+
+	private static Result run(String name, int count, int concurrency, Function<Integer, Mono<Boolean>> call) {
+		long[] latencies = new long[count];
+		AtomicInteger errors = new AtomicInteger();
+		long start = System.nanoTime();
+		Flux.range(0, count)
+				.flatMap(i -> Mono.defer(() -> {
+					long t0 = System.nanoTime();
+					return call.apply(i)
+							.onErrorReturn(false)
+							.doOnNext(ok -> {
+								latencies[i] = System.nanoTime() - t0;
+								if (!ok) errors.incrementAndGet();
+							});
+				}), concurrency)
+				.blockLast();
+		return Result.of(name, latencies, errors.get(), System.nanoTime() - start);
+	}
+
+	private static WebClient client(String baseUrl, int concurrency) {
+		ConnectionProvider pool = ConnectionProvider.builder("load")
+				.maxConnections(concurrency)
+				.pendingAcquireMaxCount(-1)
+				.build();
+		return WebClient.builder()
+				.baseUrl(baseUrl)
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)))
+				.build();
+	}
+
+	private record Result(String scenario, int requests, int errors, double seconds,
+						  double p50, double p90, double p99, double max) {
+
+		static final String HEADER = String.format("%-10s %8s %7s %9s %9s %9s %9s %9s",
+				"scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+
+		static Result of(String scenario, long[] nanos, int errors, long elapsedNanos) {
+			long[] sorted = nanos.clone();
+			Arrays.sort(sorted);
+			return new Result(scenario, sorted.length, errors, elapsedNanos / 1e9,
+					pct(sorted, 0.50), pct(sorted, 0.90), pct(sorted, 0.99), pct(sorted, 1.0));
+		}
+
+		private static double pct(long[] sorted, double p) {
+			if (sorted.length == 0) return 0;
+			int idx = (int) Math.ceil(p * sorted.length) - 1;
+			return sorted[Math.max(idx, 0)] / 1e6;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-10s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f",
+					scenario, requests, errors, seconds == 0 ? 0 : requests / seconds, p50, p90, p99, max);
+		}
+	}
+
+	private static Map<String, String> parse(String[] argv) {
+		Map<String, String> out = new HashMap<>();
+		for (String a : argv) {
+			if (!a.startsWith("--") || !a.contains("=")) throw new IllegalArgumentException("Expected --key=value, got " + a);
+			out.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+		}
+		return out;
+	}
+}
@@ -0,0 +1,339 @@
+package com.plaid_cash_snapshot.plaid;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Builder;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRoutes;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-process stand-in for the Plaid API routes this service calls, for tests and load runs
+ * without the sandbox and its rate limits. Data is synthetic and derived from the access
+ * token, so every item is stable across calls and runs:
+ *
+ *   public-stub-X --exchange--> access-stub-H / item-stub-H   (H = hash of the public token)
+ *
+ * /transactions/sync pages through transactionsPerItem rows with "cursor-N" cursors; once the
+ * history is consumed it keeps returning empty pages. Latency and error injection apply to
+ * every route.
+ */
+public final class FakePlaidServer implements AutoCloseable {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+	private static final TypeReference<Map<String, Object>> BODY = new TypeReference<>() {};
+	private static final int MAX_SYNC_COUNT = 500;
+	private static final String[] MERCHANTS = {
+			"Netflix", "Spotify", "Comcast", "Planet Fitness", "Geico", "Verizon", "Starbucks", "Uber",
+			"Amazon", "Whole Foods", "Shell", "Target", "Walgreens", "Chipotle", "Delta", "Apple"
+	};
+
+	@Value
+	@Builder(toBuilder = true)
+	public static class Options {
+		@Builder.Default int port = 0;
+		@Builder.Default Duration latency = Duration.ZERO;
+		@Builder.Default Duration latencyJitter = Duration.ZERO;
+		@Builder.Default double errorRate = 0;         // 500 INTERNAL_SERVER_ERROR
+		@Builder.Default double rateLimitRate = 0;     // 429 RATE_LIMIT_EXCEEDED
+		@Builder.Default int accountsPerItem = 3;
+		@Builder.Default int transactionsPerItem = 500;
+		@Builder.Default int syncPageSize = 100;       // Plaid's default when count is omitted
+		@Builder.Default int merchants = 200;
+		@Builder.Default int recurringStreams = 8;
+		@Builder.Default long seed = 42;
+
+		public static Options defaults() {
+			return builder().build();
+		}
+	}
+
+	private final Options options;
+	private final DisposableServer server;
+	private final AtomicLong requestIds = new AtomicLong();
+	private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+
+	private FakePlaidServer(Options options) {
+		this.options = options;
+		this.server = HttpServer.create()
+				.port(options.getPort())
+				.route(this::routes)
+				.bindNow();
+	}
+
+	public static FakePlaidServer start(Options options) {
+		return new FakePlaidServer(options);
+	}
+
+	public String baseUrl() {
+		return "http://localhost:" + server.port();
+	}
+
+	/** Requests served per route, including injected errors. */
+	public Map<String, Long> calls() {
+		Map<String, Long> out = new TreeMap<>();
+		calls.forEach((path, n) -> out.put(path, n.sum()));
+		return out;
+	}
+
+	@Override
+	public void close() {
+		server.disposeNow();
+	}
+
+	private void routes(HttpServerRoutes r) {
+		route(r, "/link/token/create", in -> Map.of(
+				"link_token", "link-stub-" + UUID.randomUUID(),
+				"expiration", OffsetDateTime.now(ZoneOffset.UTC).plusHours(4).toString()));
+		route(r, "/sandbox/public_token/create", in -> Map.of("public_token", "public-stub-" + UUID.randomUUID()));
+		route(r, "/item/public_token/exchange", this::exchange);
+		route(r, "/item/get", in -> Map.of("item", Map.of(
+				"item_id", itemId(accessToken(in)),
+				"institution_id", "ins_" + (1 + Math.floorMod(accessToken(in).hashCode(), 20)))));
+		route(r, "/institutions/get_by_id", in -> Map.of("institution", Map.of(
+				"institution_id", String.valueOf(in.get("institution_id")),
+				"name", "Stub Bank " + in.get("institution_id"))));
+		route(r, "/accounts/get", in -> Map.of("accounts", accounts(accessToken(in), false)));
+		route(r, "/accounts/balance/get", in -> Map.of("accounts", accounts(accessToken(in), true)));
+		route(r, "/transactions/sync", this::sync);
+		route(r, "/transactions/recurring/get", this::recurring);
+	}
+
+	private void route(HttpServerRoutes r, String path, Function<Map<String, Object>, Map<String, Object>> handler) {
+		r.post(path, (req, res) -> req.receive().aggregate().asString()
+				.defaultIfEmpty("{}")
+				.delayUntil(body -> Mono.delay(latency()))
+				.map(body -> respond(path, body, handler))
+				.flatMap(reply -> res.status(reply.status())
+						.header("Content-Type", "application/json")
+						.sendString(Mono.just(reply.json()))
+						.then()));
+	}
+
+	private record Reply(int status, String json) {}
+
+	private Reply respond(String path, String body, Function<Map<String, Object>, Map<String, Object>> handler) {
+		calls.computeIfAbsent(path, p -> new LongAdder()).increment();
+		String requestId = "stub-" + requestIds.incrementAndGet();
+
+		double roll = ThreadLocalRandom.current().nextDouble();
+		if (roll < options.getErrorRate()) {
+			return error(500, "API_ERROR", "INTERNAL_SERVER_ERROR", requestId);
+		}
+		if (roll < options.getErrorRate() + options.getRateLimitRate()) {
+			return error(429, "RATE_LIMIT_EXCEEDED", "RATE_LIMIT", requestId);
+		}
+
+		try {
+			Map<String, Object> out = new LinkedHashMap<>(handler.apply(JSON.readValue(body, BODY)));
+			out.put("request_id", requestId);
+			return new Reply(200, write(out));
+		} catch (JsonProcessingException | IllegalArgumentException e) {
+			return error(400, "INVALID_REQUEST", "INVALID_FIELD", requestId);
+		}
+	}
+
+	private static Reply error(int status, String type, String code, String requestId) {
+		Map<String, Object> out = new LinkedHashMap<>();
+		out.put("error_type", type);
+		out.put("error_code", code);
+		out.put("error_message", "injected by FakePlaidServer");
+		out.put("display_message", null);
+		out.put("request_id", requestId);
+		return new Reply(status, write(out));
+	}
+
+	private Duration latency() {
+		long jitter = options.getLatencyJitter().toMillis();
+		return jitter <= 0
+				? options.getLatency()
+				: options.getLatency().plusMillis(ThreadLocalRandom.current().nextLong(jitter + 1));
+	}
+
+	// ---------- Routes ----------
+
+	private Map<String, Object> exchange(Map<String, Object> in) {
+		Object publicToken = in.get("public_token");
+		if (publicToken == null) throw new IllegalArgumentException("public_token");
+		String key = Integer.toHexString(publicToken.hashCode());
+		return Map.of("access_token", "access-stub-" + key, "item_id", "item-stub-" + key);
+	}
+
+	private Map<String, Object> sync(Map<String, Object> in) {
+		String token = accessToken(in);
+		int offset = cursorOffset(in.get("cursor"));
+		int count = in.get("count") instanceof Number n ? Math.min(n.intValue(), MAX_SYNC_COUNT) : options.getSyncPageSize();
+		int total = options.getTransactionsPerItem();
+		int end = Math.min(offset + count, total);
+
+		List<Map<String, Object>> added = new ArrayList<>(Math.max(end - offset, 0));
+		for (int i = offset; i < end; i++) added.add(transaction(token, i));
+
+		Map<String, Object> out = new LinkedHashMap<>();
+		out.put("added", added);
+		out.put("modified", List.of());
+		out.put("removed", List.of());
+		out.put("next_cursor", "cursor-" + Math.max(end, offset));
+		out.put("has_more", end < total);
+		return out;
+	}
+
+	private Map<String, Object> recurring(Map<String, Object> in) {
+		String token = accessToken(in);
+		List<Map<String, Object>> outflows = new ArrayList<>();
+		for (int k = 0; k < options.getRecurringStreams(); k++) {
+			outflows.add(stream(token, k, MERCHANTS[k % MERCHANTS.length], recurringAmount(token, k), 30));
+		}
+		return Map.of(
+				"inflow_streams", List.of(stream(token, -1, "Gusto Payroll", -2500.0, 14)),
+				"outflow_streams", outflows);
+	}
+
+	// ---------- Synthetic data ----------
+
+	private List<Map<String, Object>> accounts(String token, boolean withBalances) {
+		Random rnd = new Random(itemSeed(token));
+		List<Map<String, Object>> out = new ArrayList<>();
+		for (int a = 0; a < options.getAccountsPerItem(); a++) {
+			String[] kind = switch (a % 3) {
+				case 0 -> new String[]{"depository", "checking", "Plaid Checking"};
+				case 1 -> new String[]{"depository", "savings", "Plaid Saving"};
+				default -> new String[]{"credit", "credit card", "Plaid Credit Card"};
+			};
+			Map<String, Object> acc = new LinkedHashMap<>();
+			acc.put("account_id", accountId(token, a));
+			acc.put("name", kind[2]);
+			acc.put("official_name", kind[2] + " " + a);
+			acc.put("type", kind[0]);
+			acc.put("subtype", kind[1]);
+			acc.put("mask", String.format("%04d", a));
+			if (withBalances) {
+				double current = Math.round(rnd.nextDouble() * 1_000_000) / 100.0;
+				Map<String, Object> balances = new LinkedHashMap<>();
+				balances.put("available", "credit".equals(kind[0]) ? null : current);
+				balances.put("current", current);
+				balances.put("limit", "credit".equals(kind[0]) ? 10_000.0 : null);
+				balances.put("iso_currency_code", "USD");
+				balances.put("unofficial_currency_code", null);
+				acc.put("balances", balances);
+			}
+			out.add(acc);
+		}
+		return out;
+	}
+
+	/**
+	 * Row i of an item's history, newest first. Even rows cycle through recurringStreams
+	 * merchants at a fixed amount (so they form regular series); odd rows are noise.
+	 */
+	private Map<String, Object> transaction(String token, int i) {
+		Random rnd = new Random(itemSeed(token) * 31 + i);
+		int span = 730;
+		LocalDate date = LocalDate.of(2025, 6, 30).minusDays((long) i * span / Math.max(options.getTransactionsPerItem(), 1));
+
+		String merchant;
+		double amount;
+		if (i % 2 == 0 && options.getRecurringStreams() > 0) {
+			int k = (i / 2) % options.getRecurringStreams();
+			merchant = MERCHANTS[k % MERCHANTS.length];
+			amount = recurringAmount(token, k);
+		} else {
+			int m = rnd.nextInt(Math.max(options.getMerchants(), 1));
+			merchant = MERCHANTS[m % MERCHANTS.length] + (m < MERCHANTS.length ? "" : " #" + m);
+			amount = Math.round((rnd.nextDouble() * 300 + 1) * 100) / 100.0;
+			if (rnd.nextInt(10) == 0) amount = -amount; // refunds and transfers in
+		}
+
+		Map<String, Object> t = new LinkedHashMap<>();
+		t.put("transaction_id", "txn-" + token.substring(token.lastIndexOf('-') + 1) + "-" + i);
+		t.put("account_id", accountId(token, i % options.getAccountsPerItem()));
+		t.put("amount", amount);
+		t.put("iso_currency_code", "USD");
+		t.put("unofficial_currency_code", null);
+		t.put("date", date.toString());
+		t.put("authorized_date", date.toString());
+		t.put("name", merchant.toUpperCase() + " " + (1000 + rnd.nextInt(9000)));
+		t.put("merchant_name", merchant);
+		t.put("category", List.of("Service"));
+		t.put("location", Map.of());
+		t.put("account_owner", null);
+		t.put("pending", false);
+		t.put("transaction_type", "place");
+		t.put("payment_channel", "online");
+		return t;
+	}
+
+	private Map<String, Object> stream(String token, int k, String merchant, double amount, int frequencyDays) {
+		LocalDate last = LocalDate.of(2025, 6, 30).minusDays(Math.floorMod(k, frequencyDays));
+		int occurrences = 12;
+		Map<String, Object> s = new LinkedHashMap<>();
+		s.put("stream_id", "stream-" + itemId(token) + "-" + k);
+		s.put("description", merchant.toUpperCase());
+		s.put("merchant_name", Map.of("name", merchant));
+		s.put("average_amount", Map.of("value", amount, "iso_currency_code", "USD"));
+		s.put("first_date", last.minusDays((long) frequencyDays * (occurrences - 1)) + "T00:00:00Z");
+		s.put("last_date", last + "T00:00:00Z");
+		s.put("frequency", Map.of("days", frequencyDays));
+		s.put("occurrences", occurrences);
+		s.put("is_active", true);
+		return s;
+	}
+
+	private double recurringAmount(String token, int k) {
+		return Math.round(new Random(itemSeed(token) + k).nextDouble() * 20_000) / 100.0 + 5;
+	}
+
+	private long itemSeed(String token) {
+		return options.getSeed() ^ token.hashCode();
+	}
+
+	private static String accessToken(Map<String, Object> in) {
+		Object token = in.get("access_token");
+		if (token == null) throw new IllegalArgumentException("access_token");
+		return token.toString();
+	}
+
+	private static String itemId(String token) {
+		return "item-stub-" + token.substring(token.lastIndexOf('-') + 1);
+	}
+
+	private static String accountId(String token, int a) {
+		return "acc-" + token.substring(token.lastIndexOf('-') + 1) + "-" + a;
+	}
+
+	private static int cursorOffset(Object cursor) {
+		if (cursor == null || cursor.toString().isEmpty()) return 0;
+		String s = cursor.toString();
+		if (!s.startsWith("cursor-")) throw new IllegalArgumentException("cursor");
+		return Integer.parseInt(s.substring("cursor-".length())); // NumberFormatException is an IllegalArgumentException
+	}
+
+	private static String write(Object value) {
+		try {
+			return JSON.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
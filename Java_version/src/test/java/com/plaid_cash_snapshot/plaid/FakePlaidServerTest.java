@@ -0,0 +1,71 @@
+package com.plaid_cash_snapshot.plaid;
+
+import com.plaid_cash_snapshot.plaid.dto.PlaidExchangeResponse;
+import com.plaid_cash_snapshot.plaid.dto.PlaidSyncResponse;
+import com.plaid_cash_snapshot.plaid.dto.PlaidTransaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakePlaidServerTest {
+
+	@Test
+	void syncPagesThroughTheWholeHistory() {
+		var options = FakePlaidServer.Options.builder().transactionsPerItem(250).build();
+		try (FakePlaidServer plaid = FakePlaidServer.start(options)) {
+			WebClient http = WebClient.create(plaid.baseUrl());
+			String token = http.post().uri("/item/public_token/exchange")
+					.bodyValue(Map.of("public_token", "public-stub-a"))
+					.retrieve().bodyToMono(PlaidExchangeResponse.class).block()
+					.accessToken();
+
+			Set<String> ids = new HashSet<>();
+			String cursor = null;
+			int pages = 0;
+			PlaidSyncResponse page;
+			do {
+				Map<String, Object> body = cursor == null
+						? Map.of("access_token", token)
+						: Map.of("access_token", token, "cursor", cursor);
+				page = http.post().uri("/transactions/sync").bodyValue(body)
+						.retrieve().bodyToMono(PlaidSyncResponse.class).block();
+				page.added().stream().map(PlaidTransaction::transactionId).forEach(ids::add);
+				cursor = page.nextCursor();
+				pages++;
+			} while (page.hasMore());
+
+			assertThat(pages).isEqualTo(3);
+			assertThat(ids).hasSize(250);
+
+			// caught up: further syncs are empty and keep the cursor
+			PlaidSyncResponse again = http.post().uri("/transactions/sync")
+					.bodyValue(Map.of("access_token", token, "cursor", cursor))
+					.retrieve().bodyToMono(PlaidSyncResponse.class).block();
+			assertThat(again.added()).isEmpty();
+			assertThat(again.nextCursor()).isEqualTo(cursor);
+			assertThat(plaid.calls()).containsEntry("/transactions/sync", 4L);
+		}
+	}
+
+	@Test
+	void injectsPlaidShapedErrors() {
+		var options = FakePlaidServer.Options.builder().errorRate(1.0).build();
+		try (FakePlaidServer plaid = FakePlaidServer.start(options)) {
+			assertThatThrownBy(() -> WebClient.create(plaid.baseUrl()).post().uri("/item/get")
+					.bodyValue(Map.of("access_token", "access-stub-a"))
+					.retrieve().bodyToMono(String.class).block())
+					.isInstanceOfSatisfying(WebClientResponseException.class, ex -> {
+						assertThat(ex.getStatusCode().value()).isEqualTo(500);
+						assertThat(ex.getResponseBodyAsString()).contains("\"error_code\":\"INTERNAL_SERVER_ERROR\"");
+					});
+		}
+	}
+
+}
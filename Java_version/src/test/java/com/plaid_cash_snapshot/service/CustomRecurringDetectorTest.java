@@ -0,0 +1,40 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomRecurringDetectorTest {
+
+	@Test
+	void groupsByMerchantAndAmountBucket() {
+		CustomRecurringDetector.Columns cols = new CustomRecurringDetector.Columns(0);
+		int start = (int) LocalDate.of(2025, 1, 3).toEpochDay();
+		// merchant 7: four monthly charges around $15.49, added out of order
+		cols.add(7, start + 62, 1549).add(7, start, 1549).add(7, start + 31, 1551).add(7, start + 90, 1549);
+		// merchant 7, different bucket: only two rows, not recurring
+		cols.add(7, start + 5, 9900).add(7, start + 40, 9900);
+		// merchant 9: weekly
+		for (int i = 0; i < 5; i++) cols.add(9, start + 7 * i, 425);
+
+		List<CustomRecurringDetector.Candidate> out = CustomRecurringDetector.detect(cols);
+
+		assertThat(out).hasSize(2);
+		CustomRecurringDetector.Candidate weekly = out.get(0);
+		assertThat(weekly.merchantId()).isEqualTo(9);
+		assertThat(weekly.occurrences()).isEqualTo(5);
+		assertThat(weekly.frequencyDays()).isEqualTo(7);
+
+		CustomRecurringDetector.Candidate monthly = out.get(1);
+		assertThat(monthly.merchantId()).isEqualTo(7);
+		assertThat(monthly.occurrences()).isEqualTo(4);
+		assertThat(monthly.firstEpochDay()).isEqualTo(start);
+		assertThat(monthly.lastEpochDay()).isEqualTo(start + 90);
+		assertThat(monthly.frequencyDays()).isEqualTo(31);
+		assertThat(monthly.avgAbsAmount()).isEqualTo(15.495);
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.ConditionalGetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataVersionsTest {
+
+	private static final String ETAG = "\"0cc175b9c0f1b6a831c399e269772661\"";
+
+	@Test
+	void ifNoneMatchUsesWeakComparisonOverTheList() {
+		assertThat(DataVersions.matches(ETAG, ETAG)).isTrue();
+		assertThat(DataVersions.matches("W/" + ETAG, ETAG)).isTrue();
+		assertThat(DataVersions.matches("\"other\", " + ETAG, ETAG)).isTrue();
+		assertThat(DataVersions.matches("*", ETAG)).isTrue();
+		assertThat(DataVersions.matches("\"other\"", ETAG)).isFalse();
+		assertThat(DataVersions.matches(null, ETAG)).isFalse();
+	}
+
+	@Test
+	void staleVersionsAreNeverNotModified() {
+		assertThat(new DataVersions.Version(ETAG, true).notModified(ETAG)).isTrue();
+		// matching ETag, but balances are past max age / the snapshot predates the last sync
+		assertThat(new DataVersions.Version(ETAG, false).notModified(ETAG)).isFalse();
+	}
+
+	@Test
+	void responsesCarryTheVersionReadBeforeTheBody() {
+		DataVersions versions = new DataVersions(null, new ConditionalGetProperties(), new SimpleMeterRegistry());
+		AtomicInteger reads = new AtomicInteger();
+		// every read sees a newer version, as if a write landed while the body was built
+		Mono<DataVersions.Version> version = Mono.fromSupplier(() ->
+				new DataVersions.Version("\"v" + reads.incrementAndGet() + "\"", true));
+
+		DataVersions.Conditional<String> result = versions.serve("summary", version, null,
+				Mono.fromSupplier(() -> "body@" + reads.get())).block();
+
+		assertThat(result.body()).isEqualTo("body@1");
+		assertThat(result.etag()).isEqualTo("\"v1\"");
+		assertThat(reads).hasValue(1);
+	}
+}
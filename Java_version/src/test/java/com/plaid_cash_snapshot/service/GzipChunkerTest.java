@@ -0,0 +1,41 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipChunkerTest {
+
+	@Test
+	void chunksConcatenateToOneGzipStream() throws IOException {
+		StringBuilder expected = new StringBuilder();
+		List<byte[]> chunks = new ArrayList<>();
+		try (GzipChunker gzip = new GzipChunker(1024)) {
+			for (int i = 0; i < 50_000; i++) {
+				String line = "{\"n\":" + i + ",\"name\":\"row " + Integer.toHexString(i * 31) + "\"}\n";
+				expected.append(line);
+				byte[] chunk = gzip.write(line.getBytes(StandardCharsets.UTF_8));
+				if (chunk != null) chunks.add(chunk);
+			}
+			chunks.add(gzip.finish());
+		}
+
+		// bounded: output left the chunker in pieces, none much larger than the chunk size
+		assertThat(chunks.size()).isGreaterThan(10);
+		assertThat(chunks.subList(0, chunks.size() - 1)).allSatisfy(c -> assertThat(c.length).isBetween(1024, 1024 + 65536));
+
+		ByteArrayOutputStream all = new ByteArrayOutputStream();
+		for (byte[] c : chunks) all.write(c);
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(all.toByteArray()))) {
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+		}
+	}
+}
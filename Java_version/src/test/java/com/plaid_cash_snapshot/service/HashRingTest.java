@@ -0,0 +1,44 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashRingTest {
+
+	@Test
+	void spreadsUsersAndOnlyMovesTheJoiningNodesShare() {
+		HashRing three = HashRing.of(List.of("a", "b", "c"), 128);
+		HashRing four = HashRing.of(List.of("a", "b", "c", "d"), 128);
+		Random rnd = new Random(42);
+
+		int n = 20_000;
+		Map<String, Integer> counts = new HashMap<>();
+		int moved = 0;
+		for (int i = 0; i < n; i++) {
+			UUID user = new UUID(rnd.nextLong(), rnd.nextLong());
+			String before = three.nodeFor(user);
+			String after = four.nodeFor(user);
+			counts.merge(before, 1, Integer::sum);
+			if (!before.equals(after)) {
+				moved++;
+				assertThat(after).isEqualTo("d");
+			}
+		}
+
+		assertThat(counts.values()).allSatisfy(c -> assertThat(c).isBetween(n / 3 - n / 10, n / 3 + n / 10));
+		assertThat(moved).isBetween(n / 4 - n / 10, n / 4 + n / 10);
+	}
+
+	@Test
+	void emptyRingOwnsNothing() {
+		assertThat(HashRing.EMPTY.nodeFor(UUID.randomUUID())).isNull();
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MerchantNormalizerTest {
+
+	@Test
+	void matchesRegexNormalization() {
+		String[] inputs = {
+				"Uber 063015 SF**POOL**", "  Netflix.com  ", "McDonald's", "a - b", "Tab\tand\n\nnewline",
+				"already normalized", "ÉCOLE Café", "Kelvin", "x \u0001 y", "", "   ", "!!!"
+		};
+		for (String in : inputs) {
+			String expected = in.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[^a-z0-9\\s]", "");
+			assertThat(MerchantNormalizer.normalize(in)).as(in).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void returnsInputWhenAlreadyNormalized() {
+		String in = "spotify usa";
+		assertThat(MerchantNormalizer.normalize(in)).isSameAs(in);
+	}
+
+}
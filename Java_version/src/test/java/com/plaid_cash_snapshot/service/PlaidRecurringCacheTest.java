@@ -0,0 +1,43 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.model.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PlaidRecurringCacheTest {
+
+	@Test
+	void failedLoadsAreNotCached() {
+		PlaidRecurringCache cache = new PlaidRecurringCache(100, new SimpleMeterRegistry());
+		Item item = Item.builder().id(UUID.randomUUID()).cursor("c1").build();
+		PlaidRecurringCache.Streams streams = new PlaidRecurringCache.Streams(List.of(), List.of());
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThatThrownBy(() -> cache.get(item, () -> {
+			calls.incrementAndGet();
+			return Mono.error(WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(),
+					"RATE_LIMIT_EXCEEDED", null, null, null));
+		}).block()).isInstanceOf(WebClientResponseException.class);
+
+		assertThat(cache.get(item, () -> {
+			calls.incrementAndGet();
+			return Mono.just(streams);
+		}).block()).isSameAs(streams);
+		assertThat(cache.get(item, () -> {
+			calls.incrementAndGet();
+			return Mono.just(PlaidRecurringCache.Streams.EMPTY);
+		}).block()).isSameAs(streams);
+		assertThat(calls).hasValue(2);
+	}
+
+}
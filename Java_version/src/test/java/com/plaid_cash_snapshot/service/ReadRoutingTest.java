@@ -0,0 +1,19 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadRoutingTest {
+
+	@Test
+	void lsnsCompareAsWalPositions() {
+		assertThat(ReadRouting.parseLsn("0/0")).isZero();
+		assertThat(ReadRouting.parseLsn("16/B374D848")).isEqualTo(0x16B374D848L);
+		// the low half is not zero-padded: 1/FF is before 1/100
+		assertThat(ReadRouting.parseLsn("1/FF")).isLessThan(ReadRouting.parseLsn("1/100"));
+		assertThat(ReadRouting.parseLsn("1/FFFFFFFF")).isLessThan(ReadRouting.parseLsn("2/0"));
+		assertThat(Long.compareUnsigned(ReadRouting.parseLsn("FFFFFFFF/0"), -1L)).isNegative();
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamLimiterTest {
+
+	@Test
+	void streamsOverTheLimitAreRejectedUntilAPermitIsReleased() {
+		StreamLimiter limiter = new StreamLimiter("stream", 1, Duration.ofMinutes(1));
+		var running = limiter.limit(Flux.never()).subscribe();
+
+		StepVerifier.create(limiter.limit(Flux.just(1)))
+				.expectErrorSatisfies(e -> assertThat(e).isInstanceOf(ResponseStatusException.class)
+						.hasMessageContaining("503"))
+				.verify();
+
+		running.dispose();
+		assertThat(limiter.available()).isEqualTo(1);
+		StepVerifier.create(limiter.limit(Flux.just(1))).expectNext(1).verifyComplete();
+		assertThat(limiter.available()).isEqualTo(1);
+	}
+
+	@Test
+	void streamsAreCutOffWithAnErrorAfterTheMaxDuration() {
+		StreamLimiter limiter = new StreamLimiter("stream", 1, Duration.ofMinutes(5));
+
+		StepVerifier.withVirtualTime(() -> limiter.limit(Flux.interval(Duration.ofSeconds(90))))
+				.thenAwait(Duration.ofMinutes(5))
+				.expectNextCount(3)
+				.expectError(TimeoutException.class)
+				.verify();
+		assertThat(limiter.available()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,16 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionExportServiceTest {
+
+	@Test
+	void csvFieldsAreQuotedOnlyWhenNeeded() {
+		assertThat(TransactionExportService.field(new StringBuilder(), "Coffee Shop").toString()).isEqualTo("Coffee Shop");
+		assertThat(TransactionExportService.field(new StringBuilder(), "Food, Drink").toString()).isEqualTo("\"Food, Drink\"");
+		assertThat(TransactionExportService.field(new StringBuilder(), "[\"Travel\"]").toString()).isEqualTo("\"[\"\"Travel\"\"]\"");
+		assertThat(TransactionExportService.field(new StringBuilder(), null).toString()).isEmpty();
+	}
+}
@@ -0,0 +1,29 @@
+package com.plaid_cash_snapshot.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionQueryServiceTest {
+
+	@Test
+	void cursorRoundTripsThePosition() {
+		var position = new TransactionQueryService.Position(LocalDate.of(2024, 2, 29), UUID.randomUUID());
+		String cursor = TransactionQueryService.encodeCursor(position);
+
+		assertThat(cursor).doesNotContain("=", "+", "/");
+		assertThat(TransactionQueryService.decodeCursor(cursor)).isEqualTo(position);
+	}
+
+	@Test
+	void malformedCursorIsABadRequest() {
+		assertThatThrownBy(() -> TransactionQueryService.decodeCursor("not-a-cursor"))
+				.isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("Invalid cursor");
+	}
+}
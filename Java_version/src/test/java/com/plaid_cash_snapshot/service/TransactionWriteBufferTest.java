@@ -0,0 +1,137 @@
+package com.plaid_cash_snapshot.service;
+
+import com.plaid_cash_snapshot.config.WriteBehindProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionWriteBufferTest {
+
+	private static final UUID USER = UUID.randomUUID();
+	private static final UUID ACCOUNT = UUID.randomUUID();
+
+	/** Holds every upsert until the test releases it. */
+	private static final class GatedWriter extends TransactionWriter {
+		final List<List<String>> batches = new CopyOnWriteArrayList<>();
+		final List<Sinks.Empty<Void>> gates = new CopyOnWriteArrayList<>();
+
+		GatedWriter() {
+			super(null, new SimpleMeterRegistry(), null);
+		}
+
+		@Override
+		public Mono<Long> upsert(Collection<Row> rows, OffsetDateTime now) {
+			Sinks.Empty<Void> gate = Sinks.empty();
+			batches.add(rows.stream().map(Row::transactionId).toList());
+			gates.add(gate);
+			return gate.asMono().thenReturn((long) lastPerTransaction(rows).size());
+		}
+
+		void release(String transactionId) {
+			for (int i = 0; i < batches.size(); i++) {
+				if (batches.get(i).contains(transactionId)) gates.get(i).tryEmitEmpty();
+			}
+		}
+	}
+
+	@Test
+	void concurrentCallersCompleteOnlyWhenTheirOwnRowsAreWritten() throws Exception {
+		GatedWriter writer = new GatedWriter();
+		TransactionWriteBuffer buffer = new TransactionWriteBuffer(writer, props(2), new SimpleMeterRegistry());
+		buffer.start();
+		try {
+			CountDownLatch go = new CountDownLatch(1);
+			CompletableFuture<Long> a = CompletableFuture.supplyAsync(() -> {
+				await(go);
+				return buffer.write(rows("a1", "a2"), now()).toFuture();
+			}).thenCompose(f -> f);
+			CompletableFuture<Long> b = CompletableFuture.supplyAsync(() -> {
+				await(go);
+				return buffer.write(rows("b1", "b2"), now()).toFuture();
+			}).thenCompose(f -> f);
+			go.countDown();
+
+			waitFor(() -> writer.batches.size() == 2);
+			// each caller's rows stay together, so each batch belongs to one caller
+			assertThat(writer.batches).containsExactlyInAnyOrder(List.of("a1", "a2"), List.of("b1", "b2"));
+
+			writer.release("b1");
+			assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo(2L);
+			assertThat(a).isNotDone();
+
+			writer.release("a1");
+			assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo(2L);
+		} finally {
+			buffer.stop();
+		}
+	}
+
+	@Test
+	void countsDuplicatesOnceLikeTheDirectPath() throws Exception {
+		GatedWriter writer = new GatedWriter();
+		TransactionWriteBuffer buffer = new TransactionWriteBuffer(writer, props(10), new SimpleMeterRegistry());
+		buffer.start();
+		try {
+			CompletableFuture<Long> written = buffer.write(rows("t1", "t1", "t2"), now()).toFuture();
+			waitFor(() -> writer.batches.size() == 1);
+			writer.release("t1");
+			assertThat(written.get(5, TimeUnit.SECONDS)).isEqualTo(2L);
+		} finally {
+			buffer.stop();
+		}
+	}
+
+	private static WriteBehindProperties props(int maxBatchRows) {
+		WriteBehindProperties props = new WriteBehindProperties();
+		props.setEnabled(true);
+		props.setMaxBatchRows(maxBatchRows);
+		props.setMaxDelay(Duration.ofMillis(20));
+		props.setConcurrency(2);
+		return props;
+	}
+
+	private static List<TransactionWriter.Row> rows(String... transactionIds) {
+		List<TransactionWriter.Row> out = new ArrayList<>();
+		for (String id : transactionIds) {
+			out.add(new TransactionWriter.Row(USER, ACCOUNT, id, -12.5, "USD", null, LocalDate.of(2024, 1, 2), null,
+					"Coffee", "Coffee", null, null, null, false, "place"));
+		}
+		return out;
+	}
+
+	private static OffsetDateTime now() {
+		return OffsetDateTime.now(ZoneOffset.UTC);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) throw new AssertionError("Timed out waiting");
+			Thread.sleep(5);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 -- Plaid Cash Snapshot Database Schema
 -- This file creates the necessary tables and views for the application
+-- (the Java service manages its schema with Flyway: Java_version/src/main/resources/db/migration)
 
 -- Enable UUID extension
 CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
@@ -11,6 +12,13 @@ CREATE TABLE IF NOT EXISTS users (
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Institution metadata shared across users (cache of /institutions/get_by_id)
+CREATE TABLE IF NOT EXISTS institutions (
+    institution_id VARCHAR(255) PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    fetched_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Plaid items table (stores access tokens and item information)
 CREATE TABLE IF NOT EXISTS items (
     id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
@@ -39,6 +47,14 @@ CREATE TABLE IF NOT EXISTS accounts (
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Merchants dictionary (normalized merchant name -> integer id)
+CREATE TABLE IF NOT EXISTS merchants (
+    id SERIAL PRIMARY KEY,
+    normalized_name VARCHAR(255) UNIQUE NOT NULL, -- lower-case, [a-z0-9 ] only, single spaces
+    display_name VARCHAR(255),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Transactions table
 CREATE TABLE IF NOT EXISTS transactions (
     id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
@@ -52,6 +68,7 @@ CREATE TABLE IF NOT EXISTS transactions (
     authorized_date DATE,
     name VARCHAR(500) NOT NULL,
     merchant_name VARCHAR(255),
+    merchant_id INTEGER REFERENCES merchants(id),
     category JSONB, -- Plaid categories as JSON array
     subcategory JSONB, -- Plaid subcategories
     account_owner VARCHAR(255),
@@ -61,6 +78,25 @@ CREATE TABLE IF NOT EXISTS transactions (
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Existing databases: add merchant_id and backfill it from merchant_name
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS merchant_id INTEGER REFERENCES merchants(id);
+
+INSERT INTO merchants (normalized_name, display_name)
+SELECT DISTINCT ON (norm) norm, btrim(merchant_name)
+  FROM (SELECT merchant_name,
+               regexp_replace(regexp_replace(lower(btrim(merchant_name)), '\s+', ' ', 'g'), '[^a-z0-9\s]', '', 'g') AS norm
+          FROM transactions
+         WHERE merchant_id IS NULL AND merchant_name IS NOT NULL) t
+ WHERE norm <> ''
+ON CONFLICT (normalized_name) DO NOTHING;
+
+UPDATE transactions t
+   SET merchant_id = m.id
+  FROM merchants m
+ WHERE t.merchant_id IS NULL
+   AND t.merchant_name IS NOT NULL
+   AND m.normalized_name = regexp_replace(regexp_replace(lower(btrim(t.merchant_name)), '\s+', ' ', 'g'), '[^a-z0-9\s]', '', 'g');
+
 -- Account balances table (for historical tracking)
 CREATE TABLE IF NOT EXISTS account_balances (
     id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
@@ -95,6 +131,58 @@ CREATE TABLE IF NOT EXISTS recurring_transactions (
     updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Recurring streams: provenance and cadence, so precomputed results can be served as-is
+ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS stream_id VARCHAR(255);
+ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS source VARCHAR(10); -- 'plaid' | 'custom'
+ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS first_date DATE;
+ALTER TABLE recurring_transactions ADD COLUMN IF NOT EXISTS frequency_days INTEGER;
+
+-- One row per (user, direction) for the last recurring computation (nightly job or on demand)
+CREATE TABLE IF NOT EXISTS recurring_snapshots (
+    user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    direction VARCHAR(10) NOT NULL CHECK (direction IN ('inflow', 'outflow')),
+    computed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    plaid_streams INTEGER NOT NULL DEFAULT 0,
+    custom_streams INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, direction)
+);
+
+-- Durable background jobs (e.g. post-link historical backfill), claimed with FOR UPDATE SKIP LOCKED
+CREATE TABLE IF NOT EXISTS jobs (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    job_type VARCHAR(50) NOT NULL, -- 'item_backfill'
+    user_id UUID REFERENCES users(id) ON DELETE CASCADE,
+    item_id UUID REFERENCES items(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued' CHECK (status IN ('queued', 'running', 'succeeded', 'failed')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL DEFAULT 5,
+    run_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(255),
+    locked_at TIMESTAMP WITH TIME ZONE,
+    progress INTEGER NOT NULL DEFAULT 0, -- transactions synced so far
+    last_error TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Per-item sync leases: one node syncs an item at a time. fencing_token increases on
+-- every takeover and guards the cursor write; rows are kept so tokens never go backwards.
+CREATE TABLE IF NOT EXISTS item_sync_leases (
+    item_id UUID PRIMARY KEY REFERENCES items(id) ON DELETE CASCADE,
+    owner VARCHAR(255) NOT NULL,
+    fencing_token BIGINT NOT NULL,
+    acquired_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Live application replicas; background work is split between them by consistent hashing of user_id
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    node_id VARCHAR(255) PRIMARY KEY,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_items_user_id ON items(user_id);
 CREATE INDEX IF NOT EXISTS idx_items_item_id ON items(item_id);
@@ -105,10 +193,14 @@ CREATE INDEX IF NOT EXISTS idx_transactions_user_id ON transactions(user_id);
 CREATE INDEX IF NOT EXISTS idx_transactions_account_id ON transactions(account_id);
 CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions(date);
 CREATE INDEX IF NOT EXISTS idx_transactions_merchant ON transactions(merchant_name);
+CREATE INDEX IF NOT EXISTS idx_transactions_user_merchant_id ON transactions(user_id, merchant_id);
 CREATE INDEX IF NOT EXISTS idx_transactions_amount ON transactions(amount);
 CREATE INDEX IF NOT EXISTS idx_account_balances_user_id ON account_balances(user_id);
 CREATE INDEX IF NOT EXISTS idx_account_balances_account_id ON account_balances(account_id);
 CREATE INDEX IF NOT EXISTS idx_recurring_user_id ON recurring_transactions(user_id);
+CREATE INDEX IF NOT EXISTS idx_recurring_user_direction ON recurring_transactions(user_id, direction);
+CREATE INDEX IF NOT EXISTS idx_jobs_claimable ON jobs(run_at) WHERE status = 'queued';
+CREATE UNIQUE INDEX IF NOT EXISTS uq_jobs_active_item ON jobs(job_type, item_id) WHERE status IN ('queued', 'running');
 
 -- Function to update the updated_at timestamp
 CREATE OR REPLACE FUNCTION update_updated_at_column()
@@ -140,6 +232,10 @@ DROP TRIGGER IF EXISTS update_recurring_transactions_updated_at ON recurring_tra
 CREATE TRIGGER update_recurring_transactions_updated_at BEFORE UPDATE ON recurring_transactions
     FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
 
+DROP TRIGGER IF EXISTS update_jobs_updated_at ON jobs;
+CREATE TRIGGER update_jobs_updated_at BEFORE UPDATE ON jobs
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
 -- VIEW 1: recurring_streams_v
 -- CREATE OR REPLACE VIEW recurring_streams_v AS
 -- SELECT 